@@ -0,0 +1,511 @@
+package org.zeromq.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.support.ObjectBuilder;
+import org.zeromq.support.journal.MappedJournal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.zeromq.ZMQ.DONTWAIT;
+
+/**
+ * Policy which decides what to do with message refused by {@link ZmqChannel} (HWM reached, send timeout).
+ * <p/>
+ * Policy is configured via {@link Props.Builder#withBackPressure(ObjectBuilder)}, every channel gets its own
+ * policy instance. If policy isn't set then refused message is simply dropped (and counted,
+ * see {@link ZmqChannelMetrics.Counter#DROPPED}).
+ * <p/>
+ * Policies which park messages (see {@link #queue(int)}) must preserve the order: while something is parked
+ * for a destination, channel doesn't send new messages to that destination directly, it parks them too.
+ * Destination is the peer message is routed to (the first frame) for {@code ROUTER}, and the whole channel
+ * for other sockets. So on {@code ROUTER} slow peer doesn't hold up messages to other peers. Parked messages
+ * are pushed out by {@link ZmqChannel#flush()}.
+ * <p/>
+ * <b>NOTE: {@link #retry(int, long)} and {@link #block(long)} park the thread which owns the socket until message
+ * goes out, so they are meant for channels of actors running on dedicated thread. On {@link ZmqEventLoop} they'd
+ * stall every actor of the loop, such channels are rejected there (see {@link #isBlocking()}).</b>
+ * <p/>
+ * <b>NOTE: instances aren't thread safe, they are owned by channel (and thus by single socket thread).</b>
+ */
+public abstract class BackPressure {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BackPressure.class);
+
+  private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+  /**
+   * Bounded retry with exponential backoff. Socket thread is parked while retrying: e.g. {@code retry(5, 10)} stalls
+   * it for up to ~310ms per refused message.
+   * <p/>
+   * <b>NOTE: for actors running on dedicated thread only, can't be used on {@link ZmqEventLoop}.</b>
+   *
+   * @param attempts how many times to retry.
+   * @param backoff  initial backoff (millis), doubled after every attempt.
+   */
+  public static ObjectBuilder<BackPressure> retry(final int attempts, final long backoff) {
+    checkArgument(attempts > 0, "Wrong attempts=" + attempts);
+    checkArgument(backoff >= 0, "Wrong backoff=" + backoff);
+    return new ObjectBuilder<BackPressure>() {
+      @Override
+      public BackPressure build() {
+        return new Retry(attempts, backoff);
+      }
+    };
+  }
+
+  /**
+   * Keep trying to send (with short pauses) until deadline. Socket thread is parked until then.
+   * <p/>
+   * <b>NOTE: for actors running on dedicated thread only, can't be used on {@link ZmqEventLoop}.</b>
+   *
+   * @param timeout how long to block (millis).
+   */
+  public static ObjectBuilder<BackPressure> block(final long timeout) {
+    checkArgument(timeout > 0, "Wrong timeout=" + timeout);
+    return new ObjectBuilder<BackPressure>() {
+      @Override
+      public BackPressure build() {
+        return new Block(timeout);
+      }
+    };
+  }
+
+  /**
+   * Park refused messages in the local bounded overflow queue (queue per destination on {@code ROUTER}).
+   * Messages which don't fit queue are dropped.
+   *
+   * @param capacity overflow queue capacity (in messages, of all destinations).
+   */
+  public static ObjectBuilder<BackPressure> queue(final int capacity) {
+    checkArgument(capacity > 0, "Wrong capacity=" + capacity);
+    return new ObjectBuilder<BackPressure>() {
+      @Override
+      public BackPressure build() {
+        return new Queue(capacity);
+      }
+    };
+  }
+
+  /**
+   * Spill refused messages to memory-mapped journal on local disk (see {@link MappedJournal}), journal per
+   * destination on {@code ROUTER}. Journal is unbounded, it's replayed in order as peer drains. This allows
+   * to keep HWM low and still not lose bursts. See {@link #journal(File, int, long)} for bounded one.
+   *
+   * @param dir         root directory, every channel gets its own journal directory under it.
+   * @param segmentSize journal segment size (bytes).
+   */
+  public static ObjectBuilder<BackPressure> journal(File dir, int segmentSize) {
+    return journal(dir, segmentSize, Long.MAX_VALUE);
+  }
+
+  /**
+   * Same as {@link #journal(File, int)}, but journal files of the channel (all destinations together) don't grow
+   * beyond {@code maxBytes}: messages which don't fit are dropped, i.e. send fails rather than disk fills up.
+   *
+   * @param maxBytes max total size of journal files of the channel (bytes).
+   */
+  public static ObjectBuilder<BackPressure> journal(final File dir, final int segmentSize, final long maxBytes) {
+    checkArgument(dir != null);
+    checkArgument(segmentSize >= MappedJournal.MIN_SEGMENT_SIZE, "Wrong segmentSize=" + segmentSize);
+    checkArgument(maxBytes >= segmentSize, "Wrong maxBytes=" + maxBytes);
+    return new ObjectBuilder<BackPressure>() {
+      @Override
+      public BackPressure build() {
+        checkArgument(dir.isDirectory() || dir.mkdirs(), "Can't create dir=" + dir);
+        File journalDir;
+        try {
+          journalDir = Files.createTempDirectory(dir.toPath(), "journal-").toFile();
+        }
+        catch (IOException e) {
+          LOG.error("!!! Can't create journal dir under " + dir + ": " + e, e);
+          throw ZmqException.seeCause(e);
+        }
+        return new Journal(journalDir, segmentSize, maxBytes);
+      }
+    };
+  }
+
+  /**
+   * Handles refused message.
+   *
+   * @param channel channel which refused the message.
+   * @param frames  refused message, materialized as frames (i.e. exactly as they would go on wire).
+   * @return true if message has been taken care of (sent or parked), false if it's dropped.
+   */
+  protected abstract boolean onRefused(ZmqChannel channel, ZmqFrames frames);
+
+  /**
+   * Pushes parked messages out (w/o blocking).
+   *
+   * @return true if nothing is left parked.
+   */
+  protected boolean flush(ZmqChannel channel) {
+    return true;
+  }
+
+  /**
+   * Pushes parked messages of given destination out (w/o blocking).
+   *
+   * @param destination see {@link #destination(ZmqChannel, ZmqFrames)}, null for all destinations.
+   * @return true if nothing is left parked for destination.
+   */
+  protected boolean flush(ZmqChannel channel, byte[] destination) {
+    return flush(channel);
+  }
+
+  /** @return true if there're parked messages. */
+  protected boolean hasPending() {
+    return false;
+  }
+
+  /**
+   * @param destination see {@link #destination(ZmqChannel, ZmqFrames)}, null for all destinations.
+   * @return true if there're parked messages for given destination.
+   */
+  protected boolean hasPending(byte[] destination) {
+    return hasPending();
+  }
+
+  /**
+   * @return true if policy blocks socket thread while handling refused message, such policies can't be used
+   *         by actors of {@link ZmqEventLoop}.
+   */
+  protected boolean isBlocking() {
+    return false;
+  }
+
+  /** Releases resources held by policy. Called when channel is destroyed. */
+  protected void destroy() {
+  }
+
+  /** Sends frames bypassing back-pressure policy, w/o blocking. */
+  protected final boolean trySend(ZmqChannel channel, ZmqFrames frames) {
+    return channel.sendDirect(frames, DONTWAIT);
+  }
+
+  /** @return destination of message: the first frame on {@code ROUTER}, null (the whole channel) otherwise. */
+  protected static byte[] destination(ZmqChannel channel, ZmqFrames frames) {
+    return channel.isRouter() ? frames.get(0) : null;
+  }
+
+  protected final void parked(ZmqChannel channel) {
+    channel.metrics().onParked();
+  }
+
+  protected final void unparked(ZmqChannel channel) {
+    channel.metrics().onUnparked();
+  }
+
+  private static void backoff(long nanos) {
+    LockSupport.parkNanos(nanos);
+  }
+
+  private static final class Retry extends BackPressure {
+
+    final int attempts;
+    final long backoff;
+
+    Retry(int attempts, long backoff) {
+      this.attempts = attempts;
+      this.backoff = backoff;
+    }
+
+    @Override
+    protected boolean onRefused(ZmqChannel channel, ZmqFrames frames) {
+      long nanos = TimeUnit.MILLISECONDS.toNanos(backoff);
+      for (int i = 0; i < attempts; i++) {
+        if (nanos > 0) {
+          backoff(nanos);
+          nanos <<= 1;
+        }
+        if (trySend(channel, frames)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected boolean isBlocking() {
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return "retry(attempts=" + attempts + ", backoff=" + backoff + ")";
+    }
+  }
+
+  private static final class Block extends BackPressure {
+
+    final long timeout;
+
+    Block(long timeout) {
+      this.timeout = timeout;
+    }
+
+    @Override
+    protected boolean onRefused(ZmqChannel channel, ZmqFrames frames) {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      long nanos = MIN_BACKOFF_NANOS;
+      while (System.nanoTime() < deadline) {
+        backoff(nanos);
+        nanos = Math.min(nanos << 1, MAX_BACKOFF_NANOS);
+        if (trySend(channel, frames)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected boolean isBlocking() {
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return "block(timeout=" + timeout + ")";
+    }
+  }
+
+  /**
+   * Base of policies which park messages: parked messages are kept by destination (see
+   * {@link #destination(ZmqChannel, ZmqFrames)}), destination which is flushed is forgotten.
+   *
+   * @param <P> parked messages of single destination.
+   */
+  private static abstract class Parking<P> extends BackPressure {
+
+    /** Key of the only destination of channels other than {@code ROUTER}. */
+    static final ByteBuffer CHANNEL = ByteBuffer.allocate(0);
+
+    final Map<ByteBuffer, P> _parked = new LinkedHashMap<ByteBuffer, P>();
+
+    /** @return parked messages of new destination. */
+    abstract P open(byte[] destination);
+
+    /** @return true if message is parked, false if it doesn't fit. */
+    abstract boolean add(P parked, ZmqFrames frames);
+
+    /** @return the oldest parked message or null. */
+    abstract ZmqFrames peek(P parked);
+
+    abstract void remove(P parked);
+
+    /** Releases parked messages of destination, they're gone (flushed or dropped). */
+    void close(P parked) {
+    }
+
+    @Override
+    protected final boolean onRefused(ZmqChannel channel, ZmqFrames frames) {
+      byte[] destination = destination(channel, frames);
+      ByteBuffer key = key(destination);
+      P parked = _parked.get(key);
+      if (parked == null) {
+        parked = open(destination);
+        if (!add(parked, frames)) {
+          close(parked);
+          return false;
+        }
+        _parked.put(key, parked);
+      }
+      else if (!add(parked, frames)) {
+        return false;
+      }
+      parked(channel);
+      return true;
+    }
+
+    @Override
+    protected final boolean flush(ZmqChannel channel) {
+      for (Iterator<P> iter = _parked.values().iterator(); iter.hasNext(); ) {
+        P parked = iter.next();
+        if (flush(channel, parked)) {
+          iter.remove();
+          close(parked);
+        }
+      }
+      return _parked.isEmpty();
+    }
+
+    @Override
+    protected final boolean flush(ZmqChannel channel, byte[] destination) {
+      if (destination == null) {
+        return flush(channel);
+      }
+      ByteBuffer key = key(destination);
+      P parked = _parked.get(key);
+      if (parked == null) {
+        return true;
+      }
+      if (!flush(channel, parked)) {
+        return false;
+      }
+      _parked.remove(key);
+      close(parked);
+      return true;
+    }
+
+    @Override
+    protected final boolean hasPending() {
+      return !_parked.isEmpty();
+    }
+
+    @Override
+    protected final boolean hasPending(byte[] destination) {
+      return destination == null ? !_parked.isEmpty() : _parked.containsKey(key(destination));
+    }
+
+    @Override
+    protected void destroy() {
+      for (P parked : _parked.values()) {
+        close(parked);
+      }
+      _parked.clear();
+    }
+
+    /** @return true if destination is flushed. */
+    private boolean flush(ZmqChannel channel, P parked) {
+      for (ZmqFrames frames; (frames = peek(parked)) != null; ) {
+        if (!trySend(channel, frames)) {
+          return false;
+        }
+        remove(parked);
+        unparked(channel);
+      }
+      return true;
+    }
+
+    private static ByteBuffer key(byte[] destination) {
+      return destination != null ? ByteBuffer.wrap(destination) : CHANNEL;
+    }
+  }
+
+  private static final class Queue extends Parking<ArrayDeque<ZmqFrames>> {
+
+    final int capacity;
+    /** Parked messages of all destinations. */
+    int _size;
+
+    Queue(int capacity) {
+      this.capacity = capacity;
+    }
+
+    @Override
+    ArrayDeque<ZmqFrames> open(byte[] destination) {
+      return new ArrayDeque<ZmqFrames>();
+    }
+
+    @Override
+    boolean add(ArrayDeque<ZmqFrames> parked, ZmqFrames frames) {
+      if (_size >= capacity) {
+        return false;
+      }
+      parked.offer(frames);
+      _size++;
+      return true;
+    }
+
+    @Override
+    ZmqFrames peek(ArrayDeque<ZmqFrames> parked) {
+      return parked.peek();
+    }
+
+    @Override
+    void remove(ArrayDeque<ZmqFrames> parked) {
+      parked.poll();
+      _size--;
+    }
+
+    @Override
+    void close(ArrayDeque<ZmqFrames> parked) {
+      _size -= parked.size();
+      parked.clear();
+    }
+
+    @Override
+    public String toString() {
+      return "queue(capacity=" + capacity + ")";
+    }
+  }
+
+  private static final class Journal extends Parking<MappedJournal> {
+
+    final File dir;
+    final int segmentSize;
+    final long maxBytes;
+    /** Every destination gets its own journal directory under {@link #dir}. */
+    long _journalSeq;
+    /** Total size of journal files of all destinations. */
+    long _mappedBytes;
+
+    Journal(File dir, int segmentSize, long maxBytes) {
+      this.dir = dir;
+      this.segmentSize = segmentSize;
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    MappedJournal open(byte[] destination) {
+      return new MappedJournal(new File(dir, String.format("%020d", _journalSeq++)), segmentSize);
+    }
+
+    @Override
+    boolean add(MappedJournal parked, ZmqFrames frames) {
+      if (_mappedBytes + parked.appendCost(frames) > maxBytes) {
+        return false;
+      }
+      long mappedBytes = parked.mappedBytes();
+      parked.append(frames);
+      _mappedBytes += parked.mappedBytes() - mappedBytes;
+      return true;
+    }
+
+    @Override
+    ZmqFrames peek(MappedJournal parked) {
+      return parked.peek();
+    }
+
+    @Override
+    void remove(MappedJournal parked) {
+      long mappedBytes = parked.mappedBytes();
+      parked.remove();
+      _mappedBytes -= mappedBytes - parked.mappedBytes();
+    }
+
+    @Override
+    void close(MappedJournal parked) {
+      if (!parked.isEmpty()) {
+        LOG.warn("!!! Journal destroyed with {} messages ({} bytes) in it.", parked.depth(), parked.bytes());
+      }
+      _mappedBytes -= parked.mappedBytes();
+      parked.destroy();
+    }
+
+    @Override
+    protected void destroy() {
+      super.destroy();
+      if (!dir.delete()) {
+        LOG.warn("!!! Can't delete dir " + dir + ".");
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "journal(segment_size=" + segmentSize + (maxBytes < Long.MAX_VALUE ? ", max_bytes=" + maxBytes : "") + ")";
+    }
+  }
+}
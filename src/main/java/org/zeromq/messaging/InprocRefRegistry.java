@@ -0,0 +1,101 @@
+package org.zeromq.messaging;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bounded lock-free table of objects passed by reference between actors of the same JVM
+ * (see {@link ZmqChannel#sendInprocRef(Object, int)} and {@link ZmqFrames#getInprocRef()}).
+ * <p/>
+ * Object is put into free slot and the ref (non-negative int) is sent over {@code inproc://} socket instead
+ * of serialized object. Receiver takes object out by ref, which releases the slot. Ref carries slot
+ * generation, which is bumped every time slot is released, so stale refs (already taken, released) are caught.
+ * <p/>
+ * <b>NOTE: generation is 31 - log2(capacity) bits long, i.e. it wraps eventually. Stale ref which
+ * is kept for the whole wrap cycle isn't detected.</b>
+ */
+public final class InprocRefRegistry {
+
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private final int indexBits;
+  private final int indexMask;
+  private final int generationMask;
+
+  private final AtomicReferenceArray<Object> _slots;
+  private final AtomicIntegerArray _generations;
+  /** Where to start looking for free slot, so that puts don't contend on the same slots. */
+  private final AtomicInteger _cursor = new AtomicInteger();
+
+  //// CONSTRUCTORS
+
+  public InprocRefRegistry() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** @param capacity max number of objects in flight, rounded up to power of two. */
+  public InprocRefRegistry(int capacity) {
+    checkArgument(capacity > 0 && capacity <= (1 << 24), "Wrong capacity=" + capacity);
+    int size = Integer.highestOneBit(capacity - 1) << 1;
+    size = Math.max(size, 1);
+    indexBits = Integer.numberOfTrailingZeros(size);
+    indexMask = size - 1;
+    generationMask = (1 << (31 - indexBits)) - 1;
+    _slots = new AtomicReferenceArray<Object>(size);
+    _generations = new AtomicIntegerArray(size);
+  }
+
+  //// METHODS
+
+  public int capacity() {
+    return _slots.length();
+  }
+
+  /**
+   * Puts object into free slot.
+   *
+   * @return ref (non-negative) or -1 if there's no free slot.
+   */
+  public int put(Object obj) {
+    checkArgument(obj != null);
+    int size = _slots.length();
+    for (int i = 0; i < size; i++) {
+      int slot = _cursor.getAndIncrement() & indexMask;
+      if (_slots.get(slot) == null && _slots.compareAndSet(slot, null, obj)) {
+        // generation is bumped before slot is cleared (see take()), so it's stable while slot is occupied.
+        return (_generations.get(slot) << indexBits) | slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Takes object out, releasing the slot.
+   *
+   * @return object or null if ref is stale (object has been taken or released already).
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T take(int ref) {
+    checkArgument(ref >= 0, "Wrong ref=" + ref);
+    int slot = ref & indexMask;
+    int generation = ref >>> indexBits;
+    if (!_generations.compareAndSet(slot, generation, (generation + 1) & generationMask)) {
+      return null;
+    }
+    Object obj = _slots.get(slot);
+    _slots.set(slot, null);
+    return (T) obj;
+  }
+
+  /**
+   * Releases the slot w/o handing object out, e.g. when message carrying the ref has been dropped.
+   *
+   * @return false if ref is stale.
+   */
+  public boolean release(int ref) {
+    return take(ref) != null;
+  }
+}
@@ -18,8 +18,15 @@ public final class Props {
   private static final long DEFAULT_HWM_SEND = 1000;
   /** HWM on .recv(), best guess. */
   private static final long DEFAULT_HWM_RECV = 1000;
-  /** Default buffer capacity for payload, best guess. */
+  /** Default (initial) buffer capacity for payload, best guess. Buffer grows on demand. */
   private static final int DEFAULT_PAYLOAD_BUF_CAPACITY = 8192;
+  /** Max size of incoming frame, by default it's not limited. */
+  private static final long DEFAULT_MAX_MSG_SIZE = -1;
+  /**
+   * Max size of incoming frame applied by actors which receive into {@link ZmqPooledFrames} (see {@link #bounded()}),
+   * so that they receive w/o allocation.
+   */
+  public static final long DEFAULT_BOUNDED_MAX_MSG_SIZE = 1 << 20;
 
   public static final class Builder implements ObjectBuilder<Props> {
 
@@ -39,6 +46,9 @@ public final class Props {
       _target.recvTimeout = src.recvTimeout;
       _target.routerMandatory = src.routerMandatory;
       _target.payloadBufCapacity = src.payloadBufCapacity;
+      _target.maxMsgSize = src.maxMsgSize;
+      _target.backPressure = src.backPressure;
+      _target.ringTransport = src.ringTransport;
     }
 
     public Builder withBindAddr(String address) {
@@ -119,6 +129,25 @@ public final class Props {
       return this;
     }
 
+    /**
+     * @param maxMsgSize max size of incoming frame (ZMQ_MAXMSGSIZE), peer sending larger one gets disconnected.
+     *                   Bounded frames are received w/o allocation, see {@link ZmqChannel#recv(ZmqPooledFrames, int)}.
+     */
+    public final Builder withMaxMsgSize(long maxMsgSize) {
+      _target.setMaxMsgSize(maxMsgSize);
+      return this;
+    }
+
+    public final Builder withBackPressure(ObjectBuilder<BackPressure> backPressure) {
+      _target.setBackPressure(backPressure);
+      return this;
+    }
+
+    public final Builder withRingTransport() {
+      _target.setRingTransport(true);
+      return this;
+    }
+
     @Override
     public Props build() {
       return _target;
@@ -135,6 +164,14 @@ public final class Props {
   private int recvTimeout = DEFAULT_RECV_TIMEOUT;
   private boolean routerMandatory;
   private int payloadBufCapacity = DEFAULT_PAYLOAD_BUF_CAPACITY;
+  private long maxMsgSize = DEFAULT_MAX_MSG_SIZE;
+  /** Factory of back-pressure policy. By default it's not set, i.e. refused messages are dropped. */
+  private ObjectBuilder<BackPressure> backPressure;
+  /**
+   * Use pure-java ring buffer transport instead of native socket. Applies only to DEALER, ROUTER, PUSH and PULL
+   * having inproc:// addresses only, and both sides of connection must have it set.
+   */
+  private boolean ringTransport;
 
   //// CONSTRUCTORS
 
@@ -244,4 +281,36 @@ public final class Props {
   public int payloadBufCapacity() {
     return payloadBufCapacity;
   }
+
+  public void setMaxMsgSize(long maxMsgSize) {
+    this.maxMsgSize = maxMsgSize;
+  }
+
+  public long maxMsgSize() {
+    return maxMsgSize;
+  }
+
+  /**
+   * @return these props if {@link #maxMsgSize()} is set, otherwise copy of them with
+   *         {@link #DEFAULT_BOUNDED_MAX_MSG_SIZE}. Set {@code Long.MAX_VALUE} to keep incoming frames unbounded.
+   */
+  public Props bounded() {
+    return maxMsgSize > 0 ? this : builder(this).withMaxMsgSize(DEFAULT_BOUNDED_MAX_MSG_SIZE).build();
+  }
+
+  public void setBackPressure(ObjectBuilder<BackPressure> backPressure) {
+    this.backPressure = backPressure;
+  }
+
+  public ObjectBuilder<BackPressure> backPressure() {
+    return backPressure;
+  }
+
+  public void setRingTransport(boolean ringTransport) {
+    this.ringTransport = ringTransport;
+  }
+
+  public boolean isRingTransport() {
+    return ringTransport;
+  }
 }
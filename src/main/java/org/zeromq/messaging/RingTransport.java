@@ -0,0 +1,454 @@
+package org.zeromq.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.ZMQ;
+import org.zeromq.support.ring.MpscRing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.zeromq.ZMQ.DONTWAIT;
+import static org.zeromq.ZMQ.SNDMORE;
+
+/**
+ * Pure-java {@link Transport} for {@code inproc://} peers living in the same JVM: messages are handed over
+ * through pre-allocated {@link MpscRing} w/o JNI and w/o copies (except the ones needed to detach frames
+ * from caller's reusable buffers).
+ * <p/>
+ * Every endpoint owns inbound ring (capacity is {@link Props#hwmRecv()}), peers put whole multipart
+ * messages there. Supported socket types and semantics:
+ * <ul>
+ * <li>{@code DEALER}, {@code PUSH} -- round robin among peers which have room</li>
+ * <li>{@code ROUTER} -- first frame is identity of the peer, incoming messages are prefixed with sender identity</li>
+ * <li>{@code PULL} -- receive only</li>
+ * </ul>
+ * Endpoint signals its consumer through {@link Pipe}, which is registered on {@link ZMQ.Poller} along with
+ * native sockets, so ring endpoints integrate with actor's poll loop.
+ * <p/>
+ * <b>NOTE: both sides of connection must use ring transport, see {@link Props#isRingTransport()}.</b>
+ */
+final class RingTransport implements Transport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RingTransport.class);
+
+  private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final AtomicInteger IDENTITY_SEQ = new AtomicInteger();
+  private static final byte[] SIGNAL = new byte[1];
+  /** Published into claimed slot when message is abandoned, consumer skips it. */
+  private static final byte[][] CANCELLED = new byte[0][];
+
+  private final ZmqContext ctx;
+  private final int socketType;
+  private final Props props;
+  private final byte[] identity;
+
+  private final MpscRing<byte[][]> _inbound;
+  private final Pipe _signal;
+  private final AtomicBoolean _signalled = new AtomicBoolean();
+  private final ByteBuffer _drainBuf = ByteBuffer.allocate(64);
+
+  private final List<RingTransport> _peers = new CopyOnWriteArrayList<RingTransport>();
+  private final ConcurrentHashMap<ByteBuffer, RingTransport> _peersByIdentity =
+      new ConcurrentHashMap<ByteBuffer, RingTransport>();
+  private int _nextPeer;
+
+  /** Frames of outgoing message being assembled (until frame w/o SNDMORE). */
+  private final List<byte[]> _outFrames = new ArrayList<byte[]>();
+  private RingTransport _outPeer;
+  /** Slot claimed in {@code _outPeer}'s ring for outgoing message. */
+  private long _outPos = -1;
+  private boolean _outDiscard;
+
+  /** Incoming message being read frame by frame. */
+  private byte[][] _inFrames;
+  private int _inInd;
+
+  //// CONSTRUCTORS
+
+  RingTransport(ZmqContext ctx, int socketType, Props props) {
+    checkArgument(isSupported(socketType), "Unsupported socketType=" + socketType);
+    this.ctx = ctx;
+    this.socketType = socketType;
+    this.props = props;
+    this.identity = props.identity() != null ? props.identity() : generateIdentity();
+    this._inbound = new MpscRing<byte[][]>((int) Math.min(Math.max(props.hwmRecv(), 1), 1 << 30));
+    try {
+      _signal = Pipe.open();
+      _signal.source().configureBlocking(false);
+    }
+    catch (IOException e) {
+      throw ZmqException.seeCause(e);
+    }
+  }
+
+  //// METHODS
+
+  static boolean isSupported(int socketType) {
+    switch (socketType) {
+      case ZMQ.DEALER:
+      case ZMQ.ROUTER:
+      case ZMQ.PUSH:
+      case ZMQ.PULL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** Binds endpoint on given addresses and connects it to the bound ones. */
+  void open(long connTimeout) {
+    for (String addr : props.bindAddr()) {
+      ctx.bindRing(addr, this);
+    }
+    for (String addr : props.connectAddr()) {
+      RingTransport peer = ctx.lookupRing(addr, connTimeout);
+      peer.addPeer(this);
+      addPeer(peer);
+    }
+  }
+
+  @Override
+  public boolean send(byte[] frame, int flag) {
+    return sendFrame(frame, flag);
+  }
+
+  @Override
+  public boolean send(byte[] buf, int offset, int len, int flag) {
+    byte[] frame = new byte[len];
+    System.arraycopy(buf, offset, frame, 0, len);
+    return sendFrame(frame, flag);
+  }
+
+  @Override
+  public int sendByteBuffer(ByteBuffer buf, int flag) {
+    int pos = buf.position();
+    byte[] frame = new byte[buf.remaining()];
+    buf.get(frame);
+    if (!sendFrame(frame, flag)) {
+      buf.position(pos);
+      return -1;
+    }
+    return frame.length;
+  }
+
+  @Override
+  public byte[] recv(int flag) {
+    return nextFrame(flag);
+  }
+
+  @Override
+  public int recv(byte[] buf, int offset, int len, int flag) {
+    byte[] frame = nextFrame(flag);
+    if (frame == null) {
+      return -1;
+    }
+    System.arraycopy(frame, 0, buf, offset, Math.min(len, frame.length));
+    return frame.length; // just like zmq_recv(): actual frame length, even if it's truncated.
+  }
+
+  @Override
+  public int recvByteBuffer(ByteBuffer buf, int flag) {
+    byte[] frame = nextFrame(flag);
+    if (frame == null) {
+      return -1;
+    }
+    buf.put(frame, 0, Math.min(buf.remaining(), frame.length));
+    return frame.length;
+  }
+
+  @Override
+  public boolean hasReceiveMore() {
+    return _inFrames != null && _inInd < _inFrames.length;
+  }
+
+  @Override
+  public void subscribe(byte[] topic) {
+    throw new UnsupportedOperationException("subscribe");
+  }
+
+  @Override
+  public void unsubscribe(byte[] topic) {
+    throw new UnsupportedOperationException("unsubscribe");
+  }
+
+  @Override
+  public void setXpubVerbose(boolean verbose) {
+    throw new UnsupportedOperationException("setXpubVerbose");
+  }
+
+  @Override
+  public void setLinger(long linger) {
+    // no-op: sent messages are in peer's ring already, nothing to linger for.
+  }
+
+  @Override
+  public int register(ZMQ.Poller poller, int events) {
+    // only incoming traffic is signalled, readiness for sending is checked against peers' rings.
+    return poller.register(_signal.source(), ZMQ.Poller.POLLIN);
+  }
+
+  @Override
+  public void unregister(ZMQ.Poller poller) {
+    poller.unregister(_signal.source());
+  }
+
+  @Override
+  public boolean pollin(ZMQ.Poller poller, int pollableInd) {
+    return poller.pollin(pollableInd) || !_inbound.isEmpty();
+  }
+
+  @Override
+  public boolean pollout(ZMQ.Poller poller, int pollableInd) {
+    for (RingTransport peer : _peers) {
+      if (peer.hasRoom()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void close() {
+    if (_outPeer != null && _outPos >= 0) {
+      _outPeer._inbound.publish(_outPos, CANCELLED); // don't leave claimed slot behind.
+    }
+    _outFrames.clear();
+    _outPeer = null;
+    _outPos = -1;
+    for (String addr : props.bindAddr()) {
+      ctx.unbindRing(addr, this);
+    }
+    for (RingTransport peer : _peers) {
+      peer.removePeer(this);
+    }
+    _peers.clear();
+    _peersByIdentity.clear();
+    try {
+      _signal.sink().close();
+      _signal.source().close();
+    }
+    catch (IOException e) {
+      LOG.warn("Gobble exception at pipe.close(): " + e, e);
+    }
+  }
+
+  private void addPeer(RingTransport peer) {
+    _peers.add(peer);
+    _peersByIdentity.put(ByteBuffer.wrap(peer.identity), peer);
+  }
+
+  private void removePeer(RingTransport peer) {
+    _peers.remove(peer);
+    _peersByIdentity.remove(ByteBuffer.wrap(peer.identity), peer);
+  }
+
+  private boolean hasRoom() {
+    return _inbound.size() < _inbound.capacity();
+  }
+
+  /**
+   * Collects frames of outgoing message, the whole message is put to peer's ring at the last frame.
+   * Slot in peer's ring is claimed at the first frame, so just like with native socket only first frame
+   * can be refused (ring is full within send timeout) and the rest never blocks.
+   */
+  private boolean sendFrame(byte[] frame, int flag) {
+    boolean first = _outFrames.isEmpty() && _outPeer == null && !_outDiscard;
+    if (first) {
+      if (socketType == ZMQ.ROUTER) {
+        RingTransport peer = _peersByIdentity.get(ByteBuffer.wrap(frame));
+        if (peer == null) {
+          if (props.isRouterMandatory()) {
+            return false;
+          }
+          _outDiscard = true; // just like native ROUTER: message to unknown peer is silently dropped.
+        }
+        else if ((_outPos = claim(peer, flag)) < 0) {
+          return false;
+        }
+        _outPeer = peer;
+        if ((flag & SNDMORE) == 0) {
+          return complete();
+        }
+        return true; // identity frame isn't delivered.
+      }
+      RingTransport peer = nextPeer(flag);
+      if (peer == null) {
+        return false;
+      }
+      _outPeer = peer;
+    }
+    if (!_outDiscard) {
+      _outFrames.add(frame);
+    }
+    if ((flag & SNDMORE) == 0) {
+      return complete();
+    }
+    return true;
+  }
+
+  private boolean complete() {
+    RingTransport peer = _outPeer;
+    long pos = _outPos;
+    boolean discard = _outDiscard;
+    _outPeer = null;
+    _outPos = -1;
+    _outDiscard = false;
+    if (discard || peer == null || _outFrames.isEmpty()) {
+      _outFrames.clear();
+      if (peer != null && pos >= 0) {
+        peer._inbound.publish(pos, CANCELLED);
+      }
+      return true;
+    }
+    int prefix = peer.socketType == ZMQ.ROUTER ? 1 : 0;
+    byte[][] message = new byte[prefix + _outFrames.size()][];
+    if (prefix > 0) {
+      message[0] = identity;
+    }
+    for (int i = 0; i < _outFrames.size(); i++) {
+      message[prefix + i] = _outFrames.get(i);
+    }
+    _outFrames.clear();
+    peer._inbound.publish(pos, message);
+    peer.signal();
+    return true;
+  }
+
+  /** Round robin among peers which have room, slot is claimed in ring of returned peer (see {@code _outPos}). */
+  private RingTransport nextPeer(int flag) {
+    long deadline = deadline(flag, props.sendTimeout());
+    for (long nanos = 0; ; nanos = backoff(nanos)) {
+      int size = _peers.size();
+      for (int i = 0; i < size; i++) {
+        RingTransport peer;
+        try {
+          peer = _peers.get((_nextPeer++ & Integer.MAX_VALUE) % size);
+        }
+        catch (IndexOutOfBoundsException e) {
+          break; // peer has gone, retry.
+        }
+        if ((_outPos = peer._inbound.claim()) >= 0) {
+          return peer;
+        }
+      }
+      if (System.nanoTime() - deadline >= 0) {
+        return null;
+      }
+    }
+  }
+
+  /** @return position of slot claimed in peer's ring, or -1 if ring stays full within send timeout. */
+  private long claim(RingTransport peer, int flag) {
+    long deadline = deadline(flag, props.sendTimeout());
+    for (long nanos = 0; ; nanos = backoff(nanos)) {
+      long pos = peer._inbound.claim();
+      if (pos >= 0) {
+        return pos;
+      }
+      if (System.nanoTime() - deadline >= 0) {
+        return -1;
+      }
+    }
+  }
+
+  private byte[] nextFrame(int flag) {
+    if (!hasReceiveMore()) {
+      _inFrames = take(flag);
+      _inInd = 0;
+      if (_inFrames == null) {
+        return null;
+      }
+    }
+    return _inFrames[_inInd++];
+  }
+
+  private byte[][] take(int flag) {
+    long deadline = deadline(flag, props.recvTimeout());
+    for (long nanos = 0; ; nanos = backoff(nanos)) {
+      byte[][] message = poll();
+      if (message == null) {
+        // ring looks empty: reset signal and check again, message could have slipped in w/o signalling.
+        clearSignal();
+        message = poll();
+        if (message != null && !_inbound.isEmpty()) {
+          signal();
+        }
+      }
+      if (message != null) {
+        return message;
+      }
+      if (System.nanoTime() - deadline >= 0) {
+        return null;
+      }
+    }
+  }
+
+  /** @return next message skipping cancelled ones, or null. */
+  private byte[][] poll() {
+    byte[][] message;
+    do {
+      message = _inbound.poll();
+    }
+    while (message == CANCELLED);
+    return message;
+  }
+
+  private void signal() {
+    if (_signalled.compareAndSet(false, true)) {
+      try {
+        _signal.sink().write(ByteBuffer.wrap(SIGNAL));
+      }
+      catch (IOException e) {
+        LOG.warn("Gobble exception at signal(): " + e);
+      }
+    }
+  }
+
+  private void clearSignal() {
+    if (_signalled.get()) {
+      try {
+        do {
+          _drainBuf.clear();
+        }
+        while (_signal.source().read(_drainBuf) > 0);
+      }
+      catch (IOException e) {
+        LOG.warn("Gobble exception at clearSignal(): " + e);
+      }
+      _signalled.set(false);
+    }
+  }
+
+  /** @return deadline (nanos) for blocking operation: 0 timeout at DONTWAIT, "infinite" for negative timeout. */
+  private static long deadline(int flag, long timeout) {
+    long now = System.nanoTime();
+    if ((flag & DONTWAIT) != 0 || timeout == 0) {
+      return now;
+    }
+    return timeout < 0 ? now + Long.MAX_VALUE / 2 : now + TimeUnit.MILLISECONDS.toNanos(timeout);
+  }
+
+  private static long backoff(long nanos) {
+    if (nanos > 0) {
+      LockSupport.parkNanos(nanos);
+    }
+    return Math.min(Math.max(nanos << 1, 1000), MAX_BACKOFF_NANOS);
+  }
+
+  private static byte[] generateIdentity() {
+    int i = IDENTITY_SEQ.incrementAndGet();
+    // leading zero byte, just like identities generated by libzmq.
+    return new byte[]{0, (byte) (i >> 24), (byte) (i >> 16), (byte) (i >> 8), (byte) i};
+  }
+}
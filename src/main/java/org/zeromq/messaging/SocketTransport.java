@@ -0,0 +1,108 @@
+package org.zeromq.messaging;
+
+import org.zeromq.ZMQ;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/** {@link Transport} backed by native {@link ZMQ.Socket}. */
+final class SocketTransport implements Transport {
+
+  private final ZmqContext ctx;
+  private final ZMQ.Socket socket;
+  /** inproc:// addresses bound by socket, they are unbound along with socket. */
+  private final List<String> inprocBindAddr;
+
+  //// CONSTRUCTORS
+
+  SocketTransport(ZmqContext ctx, ZMQ.Socket socket, List<String> inprocBindAddr) {
+    this.ctx = ctx;
+    this.socket = socket;
+    this.inprocBindAddr = inprocBindAddr;
+  }
+
+  //// METHODS
+
+  @Override
+  public boolean send(byte[] frame, int flag) {
+    return socket.send(frame, flag);
+  }
+
+  @Override
+  public boolean send(byte[] buf, int offset, int len, int flag) {
+    return socket.send(buf, offset, len, flag);
+  }
+
+  @Override
+  public int sendByteBuffer(ByteBuffer buf, int flag) {
+    return socket.sendByteBuffer(buf, flag);
+  }
+
+  @Override
+  public byte[] recv(int flag) {
+    return socket.recv(flag);
+  }
+
+  @Override
+  public int recv(byte[] buf, int offset, int len, int flag) {
+    return socket.recv(buf, offset, len, flag);
+  }
+
+  @Override
+  public int recvByteBuffer(ByteBuffer buf, int flag) {
+    return socket.recvByteBuffer(buf, flag);
+  }
+
+  @Override
+  public boolean hasReceiveMore() {
+    return socket.hasReceiveMore();
+  }
+
+  @Override
+  public void subscribe(byte[] topic) {
+    socket.subscribe(topic);
+  }
+
+  @Override
+  public void unsubscribe(byte[] topic) {
+    socket.unsubscribe(topic);
+  }
+
+  @Override
+  public void setXpubVerbose(boolean verbose) {
+    socket.setXpubVerbose(verbose);
+  }
+
+  @Override
+  public void setLinger(long linger) {
+    socket.setLinger(linger);
+  }
+
+  @Override
+  public int register(ZMQ.Poller poller, int events) {
+    return poller.register(socket, events);
+  }
+
+  @Override
+  public void unregister(ZMQ.Poller poller) {
+    poller.unregister(socket);
+  }
+
+  @Override
+  public boolean pollin(ZMQ.Poller poller, int pollableInd) {
+    return poller.pollin(pollableInd);
+  }
+
+  @Override
+  public boolean pollout(ZMQ.Poller poller, int pollableInd) {
+    return poller.pollout(pollableInd);
+  }
+
+  @Override
+  public void close() {
+    ctx.closeSocket(socket);
+    for (String addr : inprocBindAddr) {
+      ctx.inprocUnbound(addr);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package org.zeromq.messaging;
+
+import org.zeromq.ZMQ;
+
+import java.nio.ByteBuffer;
+
+/**
+ * What {@link ZmqChannel} sends through and receives from. Mirrors subset of {@link ZMQ.Socket} API
+ * (same flags, same return values) plus poller registration.
+ *
+ * @see SocketTransport
+ * @see RingTransport
+ */
+interface Transport {
+
+  boolean send(byte[] frame, int flag);
+
+  boolean send(byte[] buf, int offset, int len, int flag);
+
+  int sendByteBuffer(ByteBuffer buf, int flag);
+
+  byte[] recv(int flag);
+
+  int recv(byte[] buf, int offset, int len, int flag);
+
+  int recvByteBuffer(ByteBuffer buf, int flag);
+
+  boolean hasReceiveMore();
+
+  void subscribe(byte[] topic);
+
+  void unsubscribe(byte[] topic);
+
+  void setXpubVerbose(boolean verbose);
+
+  void setLinger(long linger);
+
+  int register(ZMQ.Poller poller, int events);
+
+  void unregister(ZMQ.Poller poller);
+
+  boolean pollin(ZMQ.Poller poller, int pollableInd);
+
+  boolean pollout(ZMQ.Poller poller, int pollableInd);
+
+  void close();
+}
@@ -1,18 +1,36 @@
 package org.zeromq.messaging;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.zeromq.ZMQ;
+import org.zeromq.support.HasDrain;
 import org.zeromq.support.HasInvariant;
 import org.zeromq.support.ObjectBuilder;
+import org.zeromq.support.thread.IdleStrategy;
 import org.zeromq.support.thread.ZmqActor;
+import org.zeromq.support.timer.HashedWheelTimer;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 
-public abstract class ZmqAbstractActor implements ZmqActor, HasInvariant {
+public abstract class ZmqAbstractActor implements ZmqActor, HasInvariant, HasDrain, Executor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZmqAbstractActor.class);
 
   private static final long DEFAULT_POLL_TIMEOUT = 1000;
+  /**
+   * Poll timeout while there're parked messages which can't be signalled by POLLOUT (see {@link BackPressure}
+   * and {@link ZmqChannel#isParkedRetried()}).
+   */
+  static final long PARKED_POLL_TIMEOUT = 10;
+  private static final int DEFAULT_HANDLERS_CAPACITY = 4; // just best guess.
+  /** Max number of mailbox tasks run per loop iteration, so that tasks don't starve channels. */
+  private static final int MAILBOX_BATCH = 1024;
 
   @SuppressWarnings("unchecked")
   public static abstract class Builder<B extends Builder, T extends ZmqAbstractActor>
@@ -34,6 +52,11 @@ public abstract class ZmqAbstractActor implements ZmqActor, HasInvariant {
       return (B) this;
     }
 
+    public final B withIdleStrategy(IdleStrategy idleStrategy) {
+      _target.setIdleStrategy(idleStrategy);
+      return (B) this;
+    }
+
     @Override
     public final T build() {
       _target.checkInvariant();
@@ -43,9 +66,22 @@ public abstract class ZmqAbstractActor implements ZmqActor, HasInvariant {
 
   protected ZmqContext ctx;
   private long pollTimeout = DEFAULT_POLL_TIMEOUT;
+  private IdleStrategy idleStrategy = IdleStrategy.blocking();
 
   protected ZMQ.Poller _poller = new ZMQ.Poller(1);
+  /** Actor runs on {@link ZmqEventLoop}, see {@link #attach(ZMQ.Poller)}. */
+  private boolean _attached;
   protected Map<String, ZmqChannel> _channels = new HashMap<String, ZmqChannel>();
+  /** All channels, i.e. {@link #_channels} values, for iterating w/o map. */
+  private ZmqChannel[] _channelArr = new ZmqChannel[0];
+  /** Handlers and their channels, in order of registration. */
+  private ZmqChannelHandler[] _handlers = new ZmqChannelHandler[DEFAULT_HANDLERS_CAPACITY];
+  private ZmqChannel[] _handlerChannels = new ZmqChannel[DEFAULT_HANDLERS_CAPACITY];
+  private int _handlersSize;
+  /** Scheduled timers, their nearest expiry drives poll timeout. */
+  private HashedWheelTimer _timers = new HashedWheelTimer(System.currentTimeMillis());
+  /** Tasks from other threads, see {@link #execute(Runnable)}. Opened on demand by {@link #openMailbox()}. */
+  private volatile ZmqMailbox _mailbox;
 
   //// CONSTRUCTOR
 
@@ -62,27 +98,257 @@ public abstract class ZmqAbstractActor implements ZmqActor, HasInvariant {
     this.pollTimeout = pollTimeout;
   }
 
+  public final void setIdleStrategy(IdleStrategy idleStrategy) {
+    this.idleStrategy = idleStrategy;
+  }
+
   @Override
   public void checkInvariant() {
     checkArgument(ctx != null);
+    checkArgument(idleStrategy != null);
   }
 
+  /** Subclasses which override this method must call {@code super.destroy()}. */
   @Override
-  public final void destroy() {
+  public void destroy() {
+    if (_mailbox != null) {
+      _mailbox.close();
+      _mailbox = null;
+    }
     for (ZmqChannel channel : _channels.values()) {
       channel.destroy();
     }
     _channels.clear();
+    _channelArr = new ZmqChannel[0];
+    Arrays.fill(_handlers, null);
+    Arrays.fill(_handlerChannels, null);
+    _handlersSize = 0;
+    _timers = new HashedWheelTimer(System.currentTimeMillis());
+  }
+
+  /**
+   * Drain step: actor doesn't {@link #react()} anymore, i.e. doesn't take new work, but keeps running its mailbox
+   * and flushing messages parked by {@link BackPressure}. Once they're gone (or deadline passed) every channel gets
+   * linger set to the time left, so that messages queued in sockets survive {@link #destroy()}.
+   */
+  @Override
+  public boolean drain(long deadline) {
+    try {
+      runMailbox();
+    }
+    catch (Exception e) {
+      LOG.error("!!! Got: " + e + " at mailbox task, actor=" + this, e);
+    }
+    flushParked();
+    long remaining = deadline - System.currentTimeMillis();
+    if (_mailbox != null && !_mailbox.isEmpty() && remaining > 0) {
+      return false;
+    }
+    if (hasParked()) {
+      if (remaining > 0) {
+        return false;
+      }
+      long parked = 0;
+      for (ZmqChannel channel : _channelArr) {
+        parked += channel.metrics().parkedDepth();
+      }
+      LOG.warn("!!! Drain deadline passed, " + parked + " parked messages will be lost.");
+    }
+    for (ZmqChannel channel : _channelArr) {
+      channel.setLinger(Math.max(remaining, 0));
+    }
+    return true;
+  }
+
+  /**
+   * Default loop iteration: {@link #poll()}, {@link #fireTimers()}, {@link #runMailbox()} and {@link #react()}. Actors which register all
+   * their channels with handlers (and timers) don't need to override it.
+   */
+  @Override
+  public void exec() throws Exception {
+    poll();
+    fireTimers();
+    runMailbox();
+    react();
+  }
+
+  /**
+   * Everything actor does in loop iteration after poll: {@link #dispatch()} by default. Actor which does
+   * something besides reacting on incoming traffic must override this method rather than {@link #exec()},
+   * so that it can be run by {@link ZmqEventLoop} as well.
+   */
+  protected void react() throws Exception {
+    dispatch();
+  }
+
+  /**
+   * Polls registered channels. How to wait for traffic is decided by {@link IdleStrategy}.
+   * Channels having messages parked by {@link BackPressure} are polled for POLLOUT and flushed once they're
+   * writable. Channels which can't signal that (see {@link ZmqChannel#isParkedRetried()}) shorten poll timeout
+   * and are flushed after every poll.
+   *
+   * @return number of events.
+   */
+  protected final int poll() {
+    long timeout = timersTimeout(isParkedRetried() ? Math.min(pollTimeout, PARKED_POLL_TIMEOUT) : pollTimeout);
+    int events = _poller.poll(idleStrategy.pollTimeout(timeout));
+    idleStrategy.idle(events);
+    flushWritable();
+    return events;
+  }
+
+  /** Calls handlers of channels which have incoming traffic (as of the last {@link #poll()}). */
+  protected final void dispatch() throws Exception {
+    ZmqChannelHandler[] handlers = _handlers;
+    ZmqChannel[] channels = _handlerChannels;
+    for (int i = 0; i < _handlersSize; i++) {
+      if (channels[i].canRecv()) {
+        handlers[i].onRecv(channels[i]);
+      }
+    }
+  }
+
+  /**
+   * Schedules timer task on actor's thread.
+   *
+   * @param delay  millis before the first call.
+   * @param period millis between calls, 0 for one-shot timer.
+   * @return timer handle, see {@link ZmqTimer#cancel()}.
+   */
+  protected final ZmqTimer schedule(long delay, long period, ZmqTimerTask task) {
+    checkArgument(delay >= 0, "Wrong delay=" + delay);
+    checkArgument(period >= 0, "Wrong period=" + period);
+    checkArgument(task != null);
+    ZmqTimer timer = new ZmqTimer(_timers, task, period);
+    timer.deadline = System.currentTimeMillis() + delay;
+    _timers.schedule(timer, timer.deadline);
+    return timer;
+  }
+
+  /**
+   * Calls tasks of expired timers. Periodic timers are re-scheduled (w/o catching up missed periods).
+   * Exception from task is re-thrown after timer gets re-scheduled.
+   */
+  protected final void fireTimers() throws Exception {
+    long now = System.currentTimeMillis();
+    HashedWheelTimer.Node node;
+    while ((node = _timers.poll(now)) != null) {
+      ZmqTimer timer = (ZmqTimer) node;
+      if (timer.period > 0) {
+        timer.deadline = Math.max(timer.deadline + timer.period, now);
+        _timers.schedule(timer, timer.deadline);
+      }
+      timer.task.onTimer();
+    }
   }
 
-  protected final void poll() {
-    _poller.poll(pollTimeout);
+  /**
+   * Opens mailbox: registers its signal on poller, so that {@link #execute(Runnable)} wakes actor up.
+   * Must be called from {@link #init()}.
+   */
+  protected final void openMailbox() {
+    checkState(_mailbox == null, "Mailbox is opened already!");
+    _mailbox = new ZmqMailbox(_poller);
+  }
+
+  /**
+   * Runs task on actor's thread (after timers and before {@link #react()}), in order of submission.
+   * Can be called from any thread, this is the way to hand results to actor w/o touching its channels.
+   *
+   * @throws IllegalStateException if mailbox isn't opened (or actor is destroyed already).
+   */
+  @Override
+  public final void execute(Runnable task) {
+    ZmqMailbox mailbox = _mailbox;
+    checkState(mailbox != null, "Mailbox isn't opened!");
+    mailbox.add(task);
+  }
+
+  /** Runs tasks submitted by {@link #execute(Runnable)}. Exception from task is re-thrown. */
+  protected final void runMailbox() throws Exception {
+    ZmqMailbox mailbox = _mailbox;
+    if (mailbox != null) {
+      mailbox.run(MAILBOX_BATCH);
+    }
+  }
+
+  /** @return given poll timeout cut down to the nearest timer expiry. */
+  final long timersTimeout(long timeout) {
+    return _timers.timeout(System.currentTimeMillis(), timeout);
+  }
+
+  /**
+   * Puts channel, registers it on {@link #_poller} for incoming traffic and binds handler to it.
+   * Handler will be called from {@link #dispatch()}.
+   */
+  protected final ZmqChannel register(String id, ZmqChannel channel, ZmqChannelHandler handler) {
+    checkArgument(handler != null);
+    put(id, channel).watchRecv(_poller);
+    if (_handlersSize == _handlers.length) {
+      _handlers = Arrays.copyOf(_handlers, _handlersSize << 1);
+      _handlerChannels = Arrays.copyOf(_handlerChannels, _handlersSize << 1);
+    }
+    _handlers[_handlersSize] = handler;
+    _handlerChannels[_handlersSize] = channel;
+    _handlersSize++;
+    return channel;
+  }
+
+  /**
+   * Makes actor register its channels on given (shared) poller instead of its own.
+   * Must be called before {@link #init()}. See {@link ZmqEventLoop}.
+   */
+  final void attach(ZMQ.Poller poller) {
+    checkState(_channels.isEmpty(), "Actor is initialized already!");
+    _poller = poller;
+    _attached = true;
+  }
+
+  final int channelNum() {
+    return _channelArr.length;
+  }
+
+  final long pollTimeout() {
+    return pollTimeout;
+  }
+
+  final boolean hasParked() {
+    for (ZmqChannel channel : _channelArr) {
+      if (channel.hasParked()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  final void flushParked() {
+    for (ZmqChannel channel : _channelArr) {
+      channel.flush();
+    }
+  }
+
+  final boolean isParkedRetried() {
+    for (ZmqChannel channel : _channelArr) {
+      if (channel.isParkedRetried()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  final void flushWritable() {
+    for (ZmqChannel channel : _channelArr) {
+      channel.flushWritable();
+    }
   }
 
   protected final ZmqChannel put(String id, ZmqChannel channel) {
     checkArgument(id != null && !id.trim().isEmpty(), "Wrong channelId=" + id);
     checkArgument(channel != null);
+    // blocking back-pressure would stall every actor of the loop.
+    checkArgument(!_attached || !channel.isBlocking(), "Blocking back-pressure on event loop, channelId=" + id);
     _channels.put(id, channel);
+    _channelArr = _channels.values().toArray(new ZmqChannel[_channels.size()]);
     return channel;
   }
 
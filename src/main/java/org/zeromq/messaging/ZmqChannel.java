@@ -2,6 +2,7 @@ package org.zeromq.messaging;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zeromq.ZMQ;
@@ -9,8 +10,15 @@ import org.zeromq.support.HasDestroy;
 import org.zeromq.support.HasInvariant;
 import org.zeromq.support.ObjectBuilder;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -22,8 +30,10 @@ public final class ZmqChannel implements HasDestroy {
 
   private static final Logger LOG = LoggerFactory.getLogger(ZmqChannel.class);
 
-  private static final int INPROC_CONN_TIMEOUT = 1000; // inproc protocol conn timeout, best guess.
+  private static final int INPROC_CONN_TIMEOUT = 1000; // how long to wait for inproc .bind(), best guess.
   private static final int POLLABLE_IND_NOT_INITIALIZED = -1;
+  /** Writer for {@link Builder#logOpts(ZMQ.Socket)}: thread safe, so it's built once. */
+  private static final ObjectWriter OPTS_WRITER = new ObjectMapper().writerWithDefaultPrettyPrinter();
 
   public static final class Builder implements ObjectBuilder<ZmqChannel>, HasInvariant {
 
@@ -66,6 +76,59 @@ public final class ZmqChannel implements HasDestroy {
       _target._payloadBuf = new byte[_target.props.payloadBufCapacity()];
       _target._inprocRefBuf = new byte[4/*integer*/];
 
+      if (_target.props.backPressure() != null) {
+        _target._backPressure = _target.props.backPressure().build();
+      }
+
+      if (isRingTransport()) {
+        RingTransport ring = new RingTransport(_target.ctx, _target.socketType, _target.props);
+        ring.open(INPROC_CONN_TIMEOUT);
+        logOpts(null);
+        _target._socket = ring;
+      }
+      else {
+        ZMQ.Socket socket = newSocket();
+        logOpts(socket);
+        List<String> inprocBindAddr = new ArrayList<String>();
+        for (String addr : _target.props.bindAddr()) {
+          if (isInproc(addr)) {
+            inprocBindAddr.add(addr);
+          }
+        }
+        _target._socket = new SocketTransport(_target.ctx, socket, inprocBindAddr);
+        long maxMsgSize = _target.props.maxMsgSize();
+        if (maxMsgSize > 0 && maxMsgSize <= Integer.MAX_VALUE) {
+          // frames are bounded by libzmq: scratch buffer always fits them.
+          _target._recvBuf = new byte[Math.max(_target.props.payloadBufCapacity(), (int) maxMsgSize)];
+        }
+      }
+
+      _target._metrics = new ZmqChannelMetrics(getMetricsKey());
+      _target.ctx.metrics().register(_target._metrics);
+
+      return _target;
+    }
+
+    /** @return true if pure-java transport is asked for and all addresses are inproc://. */
+    boolean isRingTransport() {
+      if (!_target.props.isRingTransport() || !RingTransport.isSupported(_target.socketType)) {
+        return false;
+      }
+      List<String> addrs = new ArrayList<String>(_target.props.bindAddr());
+      addrs.addAll(_target.props.connectAddr());
+      for (String addr : addrs) {
+        if (!isInproc(addr)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    static boolean isInproc(String addr) {
+      return addr.startsWith("inproc://");
+    }
+
+    ZMQ.Socket newSocket() {
       ZMQ.Socket socket = _target.ctx.newSocket(_target.socketType);
 
       {
@@ -85,6 +148,11 @@ public final class ZmqChannel implements HasDestroy {
           socket.setIdentity(_target.props.identity());
         }
 
+        // set MAXMSGSIZE.
+        if (_target.props.maxMsgSize() > 0) {
+          socket.setMaxMsgSize(_target.props.maxMsgSize());
+        }
+
         // set ROUTER_MANDATORY flag.
         if (_target.socketType == ZMQ.ROUTER) {
           socket.setRouterMandatory(_target.props.isRouterMandatory());
@@ -100,67 +168,82 @@ public final class ZmqChannel implements HasDestroy {
           LOG.error("!!! Got error at .bind(addr=" + addr + "): " + e, e);
           throw ZmqException.seeCause(e);
         }
+        if (isInproc(addr)) {
+          _target.ctx.inprocBound(addr);
+        }
       }
 
       // ... connect().
       for (String addr : _target.props.connectAddr()) {
-        // check if this is inproc: address.
-        if (addr.startsWith("inproc://")) {
-          long timer = System.currentTimeMillis();
-          for (; ; ) {
-            try {
-              socket.connect(addr);
-              break;
-            }
-            catch (Exception e) {
-              int timeout = INPROC_CONN_TIMEOUT;
-              if (System.currentTimeMillis() - timer > timeout) {
-                LOG.error("!!! Can't .connect(addr=" + addr + ")." + " Gave up after " + timeout + " sec.");
-                throw ZmqException.seeCause(e);
-              }
-            }
-          }
-        }
-        else {
+        // inproc: address must be bound first, wait for it (w/o spinning).
+        if (isInproc(addr)) {
           try {
-            socket.connect(addr);
+            _target.ctx.whenBound(addr).get(INPROC_CONN_TIMEOUT, TimeUnit.MILLISECONDS);
           }
-          catch (Exception e) {
-            LOG.error("!!! Got error at .connect(" + addr + "): " + e, e);
+          catch (TimeoutException e) {
+            // endpoint could have been bound not by ZmqChannel, let .connect() decide.
+            LOG.warn("Waited {} millis for .bind(addr={}), trying to connect anyway.", INPROC_CONN_TIMEOUT, addr);
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw ZmqException.seeCause(e);
           }
+          catch (ExecutionException e) {
+            throw ZmqException.seeCause(e.getCause());
+          }
+        }
+        try {
+          socket.connect(addr);
+        }
+        catch (Exception e) {
+          LOG.error("!!! Got error at .connect(" + addr + "): " + e, e);
+          throw ZmqException.seeCause(e);
         }
       }
 
-      logOpts(socket);
-
-      _target._socket = socket;
-
-      return _target;
+      return socket;
     }
 
+    /** @param socket native socket or null if pure-java transport is used. */
     void logOpts(ZMQ.Socket socket) {
+      if (!LOG.isInfoEnabled()) {
+        return;
+      }
       Map<String, Object> opts = new LinkedHashMap<String, Object>();
 
       opts.put("type", getLoggableSocketType());
       opts.put("bind_addr", _target.props.bindAddr());
       opts.put("connect_addr", _target.props.connectAddr());
-      opts.put("hwm_send", socket.getSndHWM());
-      opts.put("hwm_recv", socket.getRcvHWM());
-      opts.put("timeout_send", socket.getSendTimeOut());
-      opts.put("timeout_recv", socket.getReceiveTimeOut());
-      opts.put("custom_identity", makeHash(socket.getIdentity()));
-      opts.put("reconn_intrvl", socket.getReconnectIVL());
-      opts.put("reconn_intrvl_max", socket.getReconnectIVLMax());
-      opts.put("linger", socket.getLinger());
+      if (socket != null) {
+        opts.put("hwm_send", socket.getSndHWM());
+        opts.put("hwm_recv", socket.getRcvHWM());
+        opts.put("timeout_send", socket.getSendTimeOut());
+        opts.put("timeout_recv", socket.getReceiveTimeOut());
+        opts.put("custom_identity", makeHash(socket.getIdentity()));
+        opts.put("reconn_intrvl", socket.getReconnectIVL());
+        opts.put("reconn_intrvl_max", socket.getReconnectIVLMax());
+        opts.put("linger", socket.getLinger());
+      }
+      else {
+        opts.put("transport", "ring");
+        opts.put("ring_capacity", _target.props.hwmRecv());
+        opts.put("timeout_send", _target.props.sendTimeout());
+        opts.put("timeout_recv", _target.props.recvTimeout());
+        if (_target.props.identity() != null) {
+          opts.put("custom_identity", makeHash(_target.props.identity()));
+        }
+      }
       if (_target.socketType == ZMQ.ROUTER) {
         opts.put("router_mandatory", _target.props.isRouterMandatory());
       }
       opts.put("payload_buf_capacity", _target.props.payloadBufCapacity());
+      if (_target._backPressure != null) {
+        opts.put("back_pressure", _target._backPressure.toString());
+      }
 
       String result;
       try {
-        result = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(opts);
+        result = OPTS_WRITER.writeValueAsString(opts);
       }
       catch (JsonProcessingException e) {
         throw ZmqException.seeCause(e);
@@ -168,6 +251,12 @@ public final class ZmqChannel implements HasDestroy {
       LOG.info("Created socket: {}.", result);
     }
 
+    String getMetricsKey() {
+      return getLoggableSocketType() +
+             " bind=" + _target.props.bindAddr() +
+             " connect=" + _target.props.connectAddr();
+    }
+
     String getLoggableSocketType() {
       String loggableSocketType;
       switch (_target.socketType) {
@@ -206,11 +295,23 @@ public final class ZmqChannel implements HasDestroy {
   private int socketType = -1;
   private Props props;
 
-  private ZMQ.Socket _socket;
+  /** Native socket or pure-java ring, see {@link Props#isRingTransport()}. */
+  private Transport _socket;
   private ZMQ.Poller _poller;
   private int _pollableInd = POLLABLE_IND_NOT_INITIALIZED;
+  /** Events channel is registered for by {@link #watchRecv(ZMQ.Poller)} and friends. */
+  private int _pollEvents;
+  /** Whether channel is registered for POLLOUT too because of parked messages, see {@link #watchParked()}. */
+  private boolean _pollParked;
   private byte[] _payloadBuf;
   private byte[] _inprocRefBuf;
+  /** Off-heap counterpart of {@link #_payloadBuf}. Allocated lazily, on first {@link ByteBuffer} send. */
+  private ByteBuffer _directBuf;
+  /** Scratch buffer for {@link #recv(ZmqPooledFrames, int)}, only when frames are bounded by {@link Props#maxMsgSize()}. */
+  private byte[] _recvBuf;
+  private ZmqChannelMetrics _metrics;
+  /** Policy for refused messages, null means refused messages are dropped. See {@link Props#backPressure()}. */
+  private BackPressure _backPressure;
 
   //// CONSTRUCTORS
 
@@ -254,66 +355,298 @@ public final class ZmqChannel implements HasDestroy {
   @Override
   public void destroy() {
     unregister();
-    ctx.closeSocket(_socket);
+    if (_backPressure != null) {
+      _backPressure.destroy();
+    }
+    _socket.close();
+    ctx.metrics().unregister(_metrics);
     _socket = null;
   }
 
+  /**
+   * Overrides {@link Props#linger()}: how long messages queued in socket are kept for delivery after
+   * channel is destroyed. Used at drain, see {@link ZmqAbstractActor#drain(long)}.
+   */
+  void setLinger(long linger) {
+    checkState(_socket != null);
+    _socket.setLinger(linger);
+  }
+
+  /** @return true if channel has been destroyed. */
+  boolean isDestroyed() {
+    return _socket == null;
+  }
+
+  /** @return hot-path counters of this channel. See also {@link ZmqContext#metrics()}. */
+  public ZmqChannelMetrics metrics() {
+    return _metrics;
+  }
+
   public boolean sendFrames(ZmqFrames frames, int flag) {
+    checkState(_socket != null);
+    if (frames.isEmpty()) {
+      return false;
+    }
+    if (!flushParked(isRouter() ? frames.get(0) : null) || !putFrames(frames, flag)) {
+      return _backPressure != null ? refused(new ZmqFrames(frames)) : refused(null);
+    }
+    return sent(frames.get(frames.size() - 1).length);
+  }
+
+  /** Sends frames received by {@link #recv(ZmqPooledFrames, int)}. */
+  public boolean sendFrames(ZmqPooledFrames frames, int flag) {
     checkState(_socket != null);
     int size = frames.size();
-    int i = 0;
-    boolean sent = false;
-    for (byte[] frame : frames) {
-      sent = _socket.send(frame, ++i < size ? SNDMORE : flag);
-      if (!sent) {
-        return false;
+    if (size == 0) {
+      return false;
+    }
+    if (flushParked(frames)) {
+      int i = 0;
+      while (i < size && _socket.send(frames.buf(i), 0, frames.length(i), i + 1 < size ? SNDMORE : flag)) {
+        i++;
+      }
+      if (i == size) {
+        return sent(frames.length(size - 1));
       }
     }
-    return sent;
+    if (_backPressure == null) {
+      return refused(null);
+    }
+    ZmqFrames copy = new ZmqFrames(size);
+    for (int i = 0; i < size; i++) {
+      copy.add(Arrays.copyOf(frames.buf(i), frames.length(i)));
+    }
+    return refused(copy);
   }
 
   public boolean pub(byte[] topic, byte[] payload, int flag) {
     checkState(_socket != null);
-    if (!_socket.send(topic, SNDMORE)) {
-      return false;
-    }
     int len = putPayload(payload);
-    return _socket.send(_payloadBuf, 0, len, flag);
+    if (!flushParked() || !_socket.send(topic, SNDMORE | flag) || !_socket.send(_payloadBuf, 0, len, flag)) {
+      return refused(null, topic, _payloadBuf, len);
+    }
+    return sent(len);
   }
 
-  public boolean pubInprocRef(byte[] topic, int i, int flag) {
+  /**
+   * Publishes payload given as {@link ByteBuffer}. Bytes in range [position, limit) are sent,
+   * position and limit of {@code payload} are left intact.
+   */
+  public boolean pub(byte[] topic, ByteBuffer payload, int flag) {
     checkState(_socket != null);
-    if (!_socket.send(topic, SNDMORE)) {
-      return false;
+    ByteBuffer buf = putPayload(payload);
+    int len = buf.remaining();
+    if (!flushParked() || !_socket.send(topic, SNDMORE | flag) || _socket.sendByteBuffer(buf, flag) <= 0) {
+      return refused(null, topic, buf);
     }
+    return sent(len);
+  }
+
+  public boolean pubInprocRef(byte[] topic, int i, int flag) {
+    checkState(_socket != null);
     putInt(_inprocRefBuf, 0, i);
-    return _socket.send(_inprocRefBuf, flag);
+    if (!flushParked() || !_socket.send(topic, SNDMORE | flag) || !_socket.send(_inprocRefBuf, flag)) {
+      return refused(null, topic, _inprocRefBuf, _inprocRefBuf.length);
+    }
+    return sent(_inprocRefBuf.length);
   }
 
   public boolean send(byte[] payload, int flag) {
     checkState(_socket != null);
     int len = putPayload(payload);
-    return _socket.send(_payloadBuf, 0, len, flag);
+    if (!flushParked() || !_socket.send(_payloadBuf, 0, len, flag)) {
+      return refused(null, null, _payloadBuf, len);
+    }
+    return sent(len);
+  }
+
+  /**
+   * Sends payload given as {@link ByteBuffer}. Bytes in range [position, limit) are sent,
+   * position and limit of {@code payload} are left intact.
+   * <p/>
+   * Payload is framed in the off-heap buffer and handed to native side w/o touching java heap,
+   * so it's most efficient when {@code payload} is direct buffer.
+   */
+  public boolean send(ByteBuffer payload, int flag) {
+    checkState(_socket != null);
+    ByteBuffer buf = putPayload(payload);
+    int len = buf.remaining();
+    if (!flushParked() || _socket.sendByteBuffer(buf, flag) <= 0) {
+      return refused(null, null, buf);
+    }
+    return sent(len);
   }
 
   public boolean sendInprocRef(int i, int flag) {
     checkState(_socket != null);
     putInt(_inprocRefBuf, 0, i);
-    return _socket.send(_inprocRefBuf, flag);
+    if (!flushParked() || !_socket.send(_inprocRefBuf, flag)) {
+      return refused(null, null, _inprocRefBuf, _inprocRefBuf.length);
+    }
+    return sent(_inprocRefBuf.length);
+  }
+
+  /**
+   * Passes object by reference: object is put into {@link ZmqContext#inprocRefs()} and its ref is sent.
+   * Receiver gets object back via {@link InprocRefRegistry#take(int)} with {@link ZmqFrames#getInprocRef()}.
+   * If message is dropped the ref is released.
+   * <p/>
+   * <b>NOTE: makes sense only for inproc:// peers sharing the same {@link ZmqContext}.</b>
+   */
+  public boolean sendInprocRef(Object obj, int flag) {
+    checkState(_socket != null);
+    int ref = ctx.inprocRefs().put(obj);
+    if (ref < 0) {
+      return inprocRefsFull();
+    }
+    if (!sendInprocRef(ref, flag)) {
+      ctx.inprocRefs().release(ref);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Sends payloads one after another in a tight loop.
+   * <p/>
+   * <b>NOTE: {@link BackPressure} isn't applied to batches: caller gets the count and decides what to do
+   * with the rest. While there're parked messages nothing is sent.</b>
+   *
+   * @return number of payloads which have been sent. Sending stops at first refused payload.
+   */
+  public int sendBatch(List<byte[]> payloads, int flag) {
+    checkState(_socket != null);
+    if (!flushParked()) {
+      return 0;
+    }
+    int size = payloads.size();
+    int bytes = 0;
+    for (int i = 0; i < size; i++) {
+      int len = putPayload(payloads.get(i));
+      if (!_socket.send(_payloadBuf, 0, len, flag)) {
+        _metrics.onRefused();
+        return sentBatch(i, bytes);
+      }
+      bytes += len;
+    }
+    return sentBatch(size, bytes);
   }
 
   public boolean route(ZmqFrames identities, byte[] payload, int flag) {
     checkState(_socket != null);
-    putIdentities(identities);
     int len = putPayload(payload);
-    return _socket.send(_payloadBuf, 0, len, flag);
+    if (!flushParked(destination(identities)) || !putIdentities(identities, flag) || !_socket.send(_payloadBuf, 0, len, flag)) {
+      return refused(identities, null, _payloadBuf, len);
+    }
+    return sent(len);
+  }
+
+  /**
+   * Routes payload followed by {@code trailer} in the same frame. Trailer isn't counted in payload length,
+   * so peers which don't know about it get plain {@code payload}, see {@link ZmqPooledFrames#getTrailer()}.
+   */
+  public boolean route(ZmqFrames identities, byte[] payload, byte[] trailer, int flag) {
+    checkState(_socket != null);
+    int len = putTrailer(putPayload(payload), trailer);
+    if (!flushParked(destination(identities)) || !putIdentities(identities, flag) || !_socket.send(_payloadBuf, 0, len, flag)) {
+      return refused(identities, null, _payloadBuf, len);
+    }
+    return sent(len);
+  }
+
+  /**
+   * Routes payloads (all of them share the same {@code identities}) one after another in a tight loop.
+   * <p/>
+   * <b>NOTE: {@link BackPressure} isn't applied to batches, see {@link #sendBatch(List, int)}.</b>
+   *
+   * @return number of payloads which have been sent. Sending stops at first refused payload.
+   */
+  public int routeBatch(ZmqFrames identities, List<byte[]> payloads, int flag) {
+    checkState(_socket != null);
+    if (!flushParked(destination(identities))) {
+      return 0;
+    }
+    int size = payloads.size();
+    int bytes = 0;
+    for (int i = 0; i < size; i++) {
+      int len = putPayload(payloads.get(i));
+      if (!putIdentities(identities, flag) || !_socket.send(_payloadBuf, 0, len, flag)) {
+        _metrics.onRefused();
+        return sentBatch(i, bytes);
+      }
+      bytes += len;
+    }
+    return sentBatch(size, bytes);
+  }
+
+  /**
+   * Routes payload given as {@link ByteBuffer}. Bytes in range [position, limit) are sent,
+   * position and limit of {@code payload} are left intact.
+   */
+  public boolean route(ZmqFrames identities, ByteBuffer payload, int flag) {
+    checkState(_socket != null);
+    ByteBuffer buf = putPayload(payload);
+    int len = buf.remaining();
+    if (!flushParked(destination(identities)) || !putIdentities(identities, flag) || _socket.sendByteBuffer(buf, flag) <= 0) {
+      return refused(identities, null, buf);
+    }
+    return sent(len);
   }
 
   public boolean routeInprocRef(ZmqFrames identities, int i, int flag) {
     checkState(_socket != null);
-    putIdentities(identities);
     putInt(_inprocRefBuf, 0, i);
-    return _socket.send(_inprocRefBuf, flag);
+    if (!flushParked(destination(identities)) || !putIdentities(identities, flag) || !_socket.send(_inprocRefBuf, flag)) {
+      return refused(identities, null, _inprocRefBuf, _inprocRefBuf.length);
+    }
+    return sent(_inprocRefBuf.length);
+  }
+
+  /** Routes object by reference. See {@link #sendInprocRef(Object, int)}. */
+  public boolean routeInprocRef(ZmqFrames identities, Object obj, int flag) {
+    checkState(_socket != null);
+    int ref = ctx.inprocRefs().put(obj);
+    if (ref < 0) {
+      return inprocRefsFull();
+    }
+    if (!routeInprocRef(identities, ref, flag)) {
+      ctx.inprocRefs().release(ref);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Pushes messages parked by {@link BackPressure} out, w/o blocking.
+   *
+   * @return true if nothing is left parked.
+   */
+  public boolean flush() {
+    checkState(_socket != null);
+    if (_backPressure == null) {
+      return true;
+    }
+    boolean flushed = _backPressure.flush(this);
+    watchParked();
+    return flushed;
+  }
+
+  /** @return true if there're messages parked by {@link BackPressure}. */
+  public boolean hasParked() {
+    return _backPressure != null && _backPressure.hasPending();
+  }
+
+  /**
+   * Sends frames exactly as given, bypassing {@link BackPressure}. Used by back-pressure policies
+   * to (re)send refused messages.
+   */
+  boolean sendDirect(ZmqFrames frames, int flag) {
+    checkState(_socket != null);
+    if (!putFrames(frames, flag)) {
+      _metrics.onRefused();
+      return false;
+    }
+    return sent(frames.get(frames.size() - 1).length);
   }
 
   /**
@@ -327,16 +660,107 @@ public final class ZmqChannel implements HasDestroy {
     for (; ; ) {
       byte[] frame = _socket.recv(flag);
       if (frame == null) {
+        _metrics.onEmptyReceive();
         return null;
       }
       input.add(frame);
       if (!_socket.hasReceiveMore()) {
+        _metrics.onReceived(input.size(), frame.length);
         break;
       }
     }
     return input;
   }
 
+  /**
+   * Receives frames into reusable container.
+   * <p/>
+   * If incoming frames are bounded by {@link Props#maxMsgSize()} (actors receiving into pooled frames bound them
+   * by default, see {@link Props#bounded()}) this method doesn't allocate (in steady state) --
+   * frames are received into scratch buffer and copied into pooled buffers of {@code frames}. Otherwise every frame
+   * is received as is (i.e. of any size, nothing is lost) and kept by {@code frames} w/o copying. Frames of
+   * ring transport are never copied.
+   *
+   * @param frames container to receive into, cleared before receiving.
+   * @param flag   block/dont block flag. See {@link ZMQ#DONTWAIT}, {@link ZMQ#NOBLOCK} and {@code 0}(for block).
+   * @return true if message has been received, false otherwise.
+   */
+  public boolean recv(ZmqPooledFrames frames, int flag) {
+    checkState(_socket != null);
+    frames.clear();
+    for (; ; ) {
+      int len;
+      if (_recvBuf != null) {
+        len = _socket.recv(_recvBuf, 0, _recvBuf.length, flag);
+        if (len < 0) {
+          _metrics.onEmptyReceive();
+          return false;
+        }
+        frames.add(_recvBuf, len);
+      }
+      else {
+        // frame size isn't known in advance, and zmq_recv() into too small buffer would truncate it.
+        byte[] frame = _socket.recv(flag);
+        if (frame == null) {
+          _metrics.onEmptyReceive();
+          return false;
+        }
+        len = frame.length;
+        frames.adopt(frame);
+      }
+      if (!_socket.hasReceiveMore()) {
+        _metrics.onReceived(frames.size(), len);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Receives message straight into caller-owned direct buffer, i.e. w/o allocating {@code byte[]} for payload.
+   * <p/>
+   * All frames but the last one (identities, delimiters, topic) are collected into {@code headers}.
+   * The last frame is received into {@code buf} starting at its position, and then {@code buf} is
+   * adjusted so that [position, limit) spans exactly the payload.
+   *
+   * @param headers frames preceding payload, cleared before receiving. Can be null if caller isn't interested.
+   * @param buf     direct buffer to receive payload into.
+   * @param flag    block/dont block flag. See {@link ZMQ#DONTWAIT}, {@link ZMQ#NOBLOCK} and {@code 0}(for block).
+   * @return payload length or -1 if there's no message.
+   */
+  public int recv(ZmqFrames headers, ByteBuffer buf, int flag) {
+    checkState(_socket != null);
+    checkArgument(buf.isDirect(), "Buffer must be direct!");
+    if (headers != null) {
+      headers.clear();
+    }
+    int pos = buf.position();
+    int limit = buf.limit();
+    for (int frames = 1; ; frames++) {
+      buf.limit(limit).position(pos);
+      int len = _socket.recvByteBuffer(buf, flag);
+      if (_socket.hasReceiveMore()) {
+        if (headers != null) {
+          byte[] frame = new byte[len];
+          buf.position(pos);
+          buf.get(frame);
+          headers.add(frame);
+        }
+        continue;
+      }
+      if (frames == 1 && len <= 0) {
+        buf.position(pos);
+        _metrics.onEmptyReceive();
+        return -1;
+      }
+      checkState(len >= 4, "Wrong payload frame: " + len + " bytes.");
+      int payloadLen = buf.getInt(pos);
+      checkState(payloadLen <= len - 4, "Payload truncated: buf.remaining=" + (limit - pos) + ".");
+      buf.limit(pos + 4 + payloadLen).position(pos + 4);
+      _metrics.onReceived(frames, len);
+      return payloadLen;
+    }
+  }
+
   /**
    * Subscribe on topic.
    *
@@ -384,7 +808,10 @@ public final class ZmqChannel implements HasDestroy {
     checkState(_socket != null);
     checkState(!isRegistered());
     _poller = poller;
-    _pollableInd = _poller.register(_socket, ZMQ.Poller.POLLOUT | ZMQ.Poller.POLLIN);
+    _pollEvents = ZMQ.Poller.POLLOUT | ZMQ.Poller.POLLIN;
+    _pollableInd = _socket.register(_poller, _pollEvents);
+    _pollParked = false;
+    watchParked();
   }
 
   /** Registers internal {@link #_socket} on given poller instance. */
@@ -392,7 +819,10 @@ public final class ZmqChannel implements HasDestroy {
     checkState(_socket != null);
     checkState(!isRegistered());
     _poller = poller;
-    _pollableInd = _poller.register(_socket, ZMQ.Poller.POLLOUT);
+    _pollEvents = ZMQ.Poller.POLLOUT;
+    _pollableInd = _socket.register(_poller, _pollEvents);
+    _pollParked = false;
+    watchParked();
   }
 
   /** Registers internal {@link #_socket} on given poller instance. */
@@ -400,16 +830,20 @@ public final class ZmqChannel implements HasDestroy {
     checkState(_socket != null);
     checkState(!isRegistered());
     _poller = poller;
-    _pollableInd = _poller.register(_socket, ZMQ.Poller.POLLIN);
+    _pollEvents = ZMQ.Poller.POLLIN;
+    _pollableInd = _socket.register(_poller, _pollEvents);
+    _pollParked = false;
+    watchParked();
   }
 
   /** Clears internal poller on internal {@link #_socket}. */
   public void unregister() {
     checkState(_socket != null);
     if (_poller != null) {
-      _poller.unregister(_socket);
+      _socket.unregister(_poller);
       _poller = null;
       _pollableInd = POLLABLE_IND_NOT_INITIALIZED;
+      _pollParked = false;
     }
   }
 
@@ -417,35 +851,245 @@ public final class ZmqChannel implements HasDestroy {
   public boolean canRecv() {
     checkState(_socket != null);
     checkState(isRegistered());
-    return _poller.pollin(_pollableInd);
+    return _socket.pollin(_poller, _pollableInd);
   }
 
   /** Determines whether internal {@link #_socket} is ready for writing message w/o blocking. */
   public boolean canSend() {
     checkState(_socket != null);
     checkState(isRegistered());
-    return _poller.pollout(_pollableInd);
+    return _socket.pollout(_poller, _pollableInd);
+  }
+
+  private boolean sent(int bytes) {
+    _metrics.onSent(bytes);
+    return true;
+  }
+
+  private int sentBatch(int sent, int bytes) {
+    _metrics.onSent(sent, bytes);
+    return sent;
+  }
+
+  /**
+   * Flushes parked messages if socket is writable as of the last poll. Channels which aren't polled
+   * for POLLOUT (see {@link #isParkedRetried()}) are flushed unconditionally.
+   */
+  void flushWritable() {
+    if (hasParked() && (isParkedRetried() || canSend())) {
+      flush();
+    }
+  }
+
+  /**
+   * @return true if there're parked messages which aren't signalled by POLLOUT, so that flush has to be
+   *         retried by poll timeout, see {@link ZmqAbstractActor#PARKED_POLL_TIMEOUT}.
+   */
+  boolean isParkedRetried() {
+    return hasParked() && (_poller == null || !_pollParked && (_pollEvents & ZMQ.Poller.POLLOUT) == 0);
+  }
+
+  boolean isRouter() {
+    return socketType == ZMQ.ROUTER;
+  }
+
+  /** @return true if {@link BackPressure} of this channel blocks socket thread, see {@link BackPressure#isBlocking()}. */
+  boolean isBlocking() {
+    return _backPressure != null && _backPressure.isBlocking();
+  }
+
+  /** @return true if there's nothing parked, i.e. new message can go straight to socket. */
+  private boolean flushParked() {
+    return flushParked((byte[]) null);
+  }
+
+  /**
+   * @param destination see {@link BackPressure#destination(ZmqChannel, ZmqFrames)}, null for the whole channel.
+   * @return true if there's nothing parked for destination, i.e. new message to it can go straight to socket.
+   */
+  private boolean flushParked(byte[] destination) {
+    if (_backPressure == null || !_backPressure.hasPending(destination)) {
+      return true;
+    }
+    boolean flushed = _backPressure.flush(this, destination);
+    watchParked();
+    return flushed;
+  }
+
+  private boolean flushParked(ZmqPooledFrames frames) {
+    if (_backPressure == null || !_backPressure.hasPending()) {
+      return true;
+    }
+    return flushParked(isRouter() ? Arrays.copyOf(frames.buf(0), frames.length(0)) : null);
+  }
+
+  private byte[] destination(ZmqFrames identities) {
+    return isRouter() && !identities.isEmpty() ? identities.get(0) : null;
+  }
+
+  /**
+   * Adds POLLOUT to registration while there're parked messages and removes it once they're flushed, so that
+   * poll wakes up as soon as socket can take parked messages. Only for sockets which signal POLLOUT when peers
+   * have room: {@code ROUTER}, {@code PUB} and {@code XPUB} are always writable (they drop or refuse per peer),
+   * and ring transport doesn't signal POLLOUT at all -- parked messages of these are retried by poll timeout.
+   */
+  private void watchParked() {
+    if (_poller == null
+        || (_pollEvents & ZMQ.Poller.POLLOUT) != 0
+        || !(_socket instanceof SocketTransport)
+        || socketType == ZMQ.ROUTER
+        || socketType == ZMQ.PUB
+        || socketType == ZMQ.XPUB) {
+      return;
+    }
+    boolean parked = hasParked();
+    if (parked != _pollParked) {
+      _socket.unregister(_poller);
+      _pollableInd = _socket.register(_poller, parked ? _pollEvents | ZMQ.Poller.POLLOUT : _pollEvents);
+      _pollParked = parked;
+    }
+  }
+
+  /**
+   * Handles refused message: hands it over to {@link BackPressure} or drops it.
+   *
+   * @param frames refused message materialized as frames, null if there's no back-pressure policy.
+   */
+  private boolean refused(ZmqFrames frames) {
+    _metrics.onRefused();
+    if (_backPressure != null && _backPressure.onRefused(this, frames)) {
+      watchParked();
+      return true;
+    }
+    _metrics.onDropped();
+    return false;
+  }
+
+  private boolean inprocRefsFull() {
+    LOG.warn("!!! Message dropped: no free slots in inproc refs registry (capacity={}).", ctx.inprocRefs().capacity());
+    _metrics.onRefused();
+    _metrics.onDropped();
+    return false;
+  }
+
+  private boolean refused(ZmqFrames identities, byte[] topic, byte[] buf, int len) {
+    return refused(_backPressure != null ? materialize(identities, topic, Arrays.copyOf(buf, len)) : null);
+  }
+
+  private boolean refused(ZmqFrames identities, byte[] topic, ByteBuffer buf) {
+    if (_backPressure == null) {
+      return refused(null);
+    }
+    byte[] frame = new byte[buf.remaining()];
+    buf.get(frame);
+    return refused(materialize(identities, topic, frame));
+  }
+
+  /** Builds message exactly as {@link #putIdentities(ZmqFrames, int)} + topic + payload would put it on wire. */
+  private ZmqFrames materialize(ZmqFrames identities, byte[] topic, byte[] payloadFrame) {
+    ZmqFrames frames = new ZmqFrames();
+    if (identities != null) {
+      if (socketType == ZMQ.DEALER) {
+        frames.add(EMPTY_FRAME);
+      }
+      for (byte[] identity : identities) {
+        frames.add(identity);
+        frames.add(EMPTY_FRAME);
+      }
+      frames.add(EMPTY_FRAME);
+    }
+    if (topic != null) {
+      frames.add(topic);
+    }
+    frames.add(payloadFrame);
+    return frames;
+  }
+
+  /** Sends frames as is. Only first frame can be refused, see {@link #putIdentities(ZmqFrames, int)}. */
+  private boolean putFrames(ZmqFrames frames, int flag) {
+    int size = frames.size();
+    for (int i = 0; i < size; i++) {
+      if (!_socket.send(frames.get(i), i + 1 < size ? SNDMORE : flag)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   private boolean isRegistered() {
     return _pollableInd != POLLABLE_IND_NOT_INITIALIZED;
   }
 
-  private void putIdentities(ZmqFrames identities) {
+  /**
+   * Sends identities part of the message. Only first frame can be refused (once it's accepted the rest of
+   * multipart message is accepted too), so in case it's refused nothing has been sent and message can be retried.
+   */
+  private boolean putIdentities(ZmqFrames identities, int flag) {
+    int more = SNDMORE | flag;
+    int size = identities.size();
     if (socketType == ZMQ.DEALER) {
-      _socket.send(EMPTY_FRAME, SNDMORE);
+      if (!_socket.send(EMPTY_FRAME, more)) {
+        return false;
+      }
+      more = SNDMORE;
     }
-    for (byte[] frame : identities) {
-      _socket.send(frame, SNDMORE);
-      _socket.send(EMPTY_FRAME, SNDMORE);
+    for (int i = 0; i < size; i++) {
+      if (!_socket.send(identities.get(i), more)) {
+        return false;
+      }
+      more = SNDMORE;
+      _socket.send(EMPTY_FRAME, more);
     }
-    _socket.send(EMPTY_FRAME, SNDMORE);
+    return _socket.send(EMPTY_FRAME, more);
   }
 
   private int putPayload(byte[] payload) {
+    int len = 4 + payload.length;
+    if (len > _payloadBuf.length) {
+      _payloadBuf = new byte[grow(_payloadBuf.length, len)];
+    }
     putInt(_payloadBuf, 0, payload.length);
     System.arraycopy(payload, 0, _payloadBuf, 4, payload.length);
-    return 4 + payload.length;
+    return len;
+  }
+
+  private int putTrailer(int len, byte[] trailer) {
+    int newLen = len + trailer.length;
+    if (newLen > _payloadBuf.length) {
+      _payloadBuf = Arrays.copyOf(_payloadBuf, grow(_payloadBuf.length, newLen));
+    }
+    System.arraycopy(trailer, 0, _payloadBuf, len, trailer.length);
+    return newLen;
+  }
+
+  /**
+   * Calculates new capacity for growing buffer: keeps doubling given {@code capacity} until it
+   * fits {@code required}. Buffers are grown on demand and never shrink, so {@link Props#payloadBufCapacity()}
+   * should be set for typical payload rather than for the largest one.
+   */
+  private static int grow(int capacity, int required) {
+    int newCapacity = Math.max(capacity, 1);
+    while (newCapacity < required) {
+      newCapacity <<= 1;
+      if (newCapacity <= 0) {
+        return required;
+      }
+    }
+    return newCapacity;
+  }
+
+  private ByteBuffer putPayload(ByteBuffer payload) {
+    int len = 4 + payload.remaining();
+    if (_directBuf == null || len > _directBuf.capacity()) {
+      _directBuf = ByteBuffer.allocateDirect(grow(_directBuf == null ? props.payloadBufCapacity() : _directBuf.capacity(), len));
+    }
+    int pos = payload.position();
+    _directBuf.clear();
+    _directBuf.putInt(payload.remaining());
+    _directBuf.put(payload);
+    _directBuf.flip();
+    payload.position(pos);
+    return _directBuf;
   }
 
   private void putInt(byte[] buf, int offset, int i) {
@@ -0,0 +1,13 @@
+package org.zeromq.messaging;
+
+/**
+ * Handler of incoming traffic, see {@link ZmqAbstractActor#register(String, ZmqChannel, ZmqChannelHandler)}.
+ */
+public interface ZmqChannelHandler {
+
+  /**
+   * Called when {@code channel} has incoming messages (i.e. {@link ZmqChannel#canRecv()}).
+   * Handler is expected to drain channel w/o blocking.
+   */
+  void onRecv(ZmqChannel channel) throws Exception;
+}
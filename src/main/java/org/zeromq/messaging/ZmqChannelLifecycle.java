@@ -0,0 +1,89 @@
+package org.zeromq.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.support.ObjectBuilder;
+import org.zeromq.support.pool.PoolObjectRecycler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.zeromq.ZMQ.DONTWAIT;
+
+/**
+ * Lifecycle of {@link ZmqChannel}-s pooled in {@link org.zeromq.support.pool.SimplePool}, e.g. for short-lived clients which would otherwise create
+ * (and connect) DEALER per request:
+ * <pre>
+ *   Pool&lt;ZmqChannel&gt; pool = new SimplePool&lt;ZmqChannel&gt;(ZmqChannelLifecycle.DEALER(ctx, props));
+ *   Lease&lt;ZmqChannel&gt; lease = pool.lease();
+ *   try {
+ *     lease.get().send(...);
+ *     lease.get().recv(...);
+ *   }
+ *   finally {
+ *     lease.release();
+ *   }
+ * </pre>
+ * Channel is reused as long as it's alive and has nothing parked (see {@link BackPressure}).
+ * On release all pending incoming messages (e.g. late replies to timed out requests) are discarded,
+ * so that next lessee doesn't get them.
+ * <p/>
+ * <b>NOTE: leased channel must be used by one thread at a time.</b>
+ */
+public final class ZmqChannelLifecycle implements PoolObjectRecycler<ZmqChannel> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZmqChannelLifecycle.class);
+
+  private final ObjectBuilder<ZmqChannel> factory;
+
+  //// CONSTRUCTORS
+
+  /** @param factory builds new channel on every call. */
+  public ZmqChannelLifecycle(ObjectBuilder<ZmqChannel> factory) {
+    checkArgument(factory != null);
+    this.factory = factory;
+  }
+
+  //// METHODS
+
+  /** @return lifecycle of DEALER-s built from given {@code props}. */
+  public static ZmqChannelLifecycle DEALER(final ZmqContext ctx, final Props props) {
+    checkArgument(ctx != null);
+    checkArgument(props != null);
+    return new ZmqChannelLifecycle(new ObjectBuilder<ZmqChannel>() {
+      @Override
+      public ZmqChannel build() {
+        return ZmqChannel.DEALER(ctx).with(props).build();
+      }
+    });
+  }
+
+  @Override
+  public ZmqChannel build() {
+    return factory.build();
+  }
+
+  @Override
+  public void destroy(ZmqChannel channel) {
+    if (!channel.isDestroyed()) {
+      channel.destroy();
+    }
+  }
+
+  @Override
+  public boolean validate(ZmqChannel channel) {
+    return !channel.isDestroyed() && channel.flush();
+  }
+
+  @Override
+  public void reset(ZmqChannel channel) {
+    if (channel.isDestroyed()) {
+      return;
+    }
+    int discarded = 0;
+    while (channel.recv(DONTWAIT) != null) {
+      discarded++;
+    }
+    if (discarded > 0) {
+      LOG.warn("Discarded {} pending message(s) on channel release.", discarded);
+    }
+  }
+}
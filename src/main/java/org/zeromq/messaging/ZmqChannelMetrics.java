@@ -0,0 +1,118 @@
+package org.zeromq.messaging;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hot-path counters of single {@link ZmqChannel}.
+ * <p/>
+ * Counters are thread-confined: they are written only by the thread which owns the channel
+ * (w/o CAS, using ordered stores) and can be read by any thread, e.g. by the one which collects
+ * {@link ZmqMetricsRegistry#snapshot()}.
+ */
+public final class ZmqChannelMetrics {
+
+  public static enum Counter {
+    /** Messages which have been accepted by socket. */
+    MESSAGES_SENT,
+    /** Payload bytes (i.e. bytes of the last frame) which have been accepted by socket. */
+    BYTES_SENT,
+    /**
+     * Messages which couldn't be handed to socket right away: refused by socket (HWM reached, send timeout)
+     * or queued up behind parked ones. See {@link BackPressure}.
+     */
+    SEND_REFUSED,
+    /** Messages which have been lost, i.e. refused and not taken care of by {@link BackPressure}. */
+    DROPPED,
+    /** Messages which have been parked by {@link BackPressure}. */
+    PARKED,
+    /** Parked messages which have been sent eventually. {@link #PARKED} minus this one gives parked depth. */
+    UNPARKED,
+    /** Messages which have been received. */
+    MESSAGES_RECEIVED,
+    /** Payload bytes (i.e. bytes of the last frame) which have been received. */
+    BYTES_RECEIVED,
+    /** Frames which have been received. Divided by {@link #MESSAGES_RECEIVED} gives frames per message. */
+    FRAMES_RECEIVED,
+    /** Receive attempts which returned nothing (recv timeout, nothing to read at DONTWAIT). */
+    EMPTY_RECEIVES
+  }
+
+  private static final Counter[] COUNTERS = Counter.values();
+
+  private final String key;
+  private final AtomicLongArray _counters = new AtomicLongArray(COUNTERS.length);
+
+  //// CONSTRUCTORS
+
+  ZmqChannelMetrics(String key) {
+    this.key = key;
+  }
+
+  //// METHODS
+
+  /** @return key under which metrics are registered in {@link ZmqMetricsRegistry}. */
+  public String key() {
+    return key;
+  }
+
+  public long get(Counter counter) {
+    return _counters.get(counter.ordinal());
+  }
+
+  /** @return number of messages currently parked by {@link BackPressure} (e.g. depth of spill journal). */
+  public long parkedDepth() {
+    return get(Counter.PARKED) - get(Counter.UNPARKED);
+  }
+
+  public Map<String, Long> snapshot() {
+    Map<String, Long> snapshot = new LinkedHashMap<String, Long>();
+    for (Counter counter : COUNTERS) {
+      snapshot.put(counter.name().toLowerCase(), get(counter));
+    }
+    snapshot.put("parked_depth", parkedDepth());
+    return snapshot;
+  }
+
+  void onSent(int bytes) {
+    add(Counter.MESSAGES_SENT, 1);
+    add(Counter.BYTES_SENT, bytes);
+  }
+
+  void onSent(int messages, int bytes) {
+    add(Counter.MESSAGES_SENT, messages);
+    add(Counter.BYTES_SENT, bytes);
+  }
+
+  void onRefused() {
+    add(Counter.SEND_REFUSED, 1);
+  }
+
+  void onDropped() {
+    add(Counter.DROPPED, 1);
+  }
+
+  void onParked() {
+    add(Counter.PARKED, 1);
+  }
+
+  void onUnparked() {
+    add(Counter.UNPARKED, 1);
+  }
+
+  void onReceived(int frames, int bytes) {
+    add(Counter.MESSAGES_RECEIVED, 1);
+    add(Counter.FRAMES_RECEIVED, frames);
+    add(Counter.BYTES_RECEIVED, bytes);
+  }
+
+  void onEmptyReceive() {
+    add(Counter.EMPTY_RECEIVES, 1);
+  }
+
+  private void add(Counter counter, long delta) {
+    int i = counter.ordinal();
+    _counters.lazySet(i, _counters.get(i) + delta);
+  }
+}
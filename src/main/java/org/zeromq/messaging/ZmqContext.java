@@ -1,5 +1,7 @@
 package org.zeromq.messaging;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zeromq.ZMQ;
@@ -7,8 +9,10 @@ import org.zeromq.support.HasDestroy;
 import org.zeromq.support.HasInit;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Encapsulation over {@link ZMQ.Context} and lifecycle of {@link ZMQ.Socket}.
@@ -22,9 +26,16 @@ public final class ZmqContext implements HasInit, HasDestroy {
   private static final Logger LOG = LoggerFactory.getLogger(ZmqContext.class);
 
   private int threadNum = 1;
+  private int inprocRefCapacity = InprocRefRegistry.DEFAULT_CAPACITY;
 
   private ZMQ.Context _context;
   private List<ZMQ.Socket> _sockets = new ArrayList<ZMQ.Socket>();
+  private final ZmqMetricsRegistry _metrics = new ZmqMetricsRegistry();
+  private InprocRefRegistry _inprocRefs;
+  /** Readiness of inproc:// endpoints: future is set when endpoint is bound, see {@link #whenBound(String)}. */
+  private final Map<String, SettableFuture<Void>> _inprocBinds = new HashMap<String, SettableFuture<Void>>();
+  /** Bound endpoints of pure-java inproc transport, see {@link RingTransport}. */
+  private final Map<String, RingTransport> _rings = new HashMap<String, RingTransport>();
   /**
    * Switcher which guards invariant. In particular
    * this flag prohibits creating new zmq_sockets when another
@@ -40,11 +51,28 @@ public final class ZmqContext implements HasInit, HasDestroy {
     }
   }
 
+  public void setInprocRefCapacity(int inprocRefCapacity) {
+    if (inprocRefCapacity > 0) {
+      this.inprocRefCapacity = inprocRefCapacity;
+    }
+  }
+
+  /** @return registry of objects passed by reference over inproc sockets of this context. */
+  public InprocRefRegistry inprocRefs() {
+    return _inprocRefs;
+  }
+
+  /** @return metrics of all live channels which were produced by this context. */
+  public ZmqMetricsRegistry metrics() {
+    return _metrics;
+  }
+
   /** Method does some sanity check and then creates the {@link #_context}. */
   @Override
   public void init() {
     LOG.info("Creating ZmqContext(threadNum={}) ...", threadNum);
     _context = ZMQ.context(threadNum);
+    _inprocRefs = new InprocRefRegistry(inprocRefCapacity);
     LOG.info("ZmqContext created.");
   }
 
@@ -79,6 +107,10 @@ public final class ZmqContext implements HasInit, HasDestroy {
           LOG.warn("Gobble exception at socket.close(): " + e, e);
         }
       }
+      for (SettableFuture<Void> future : _inprocBinds.values()) {
+        future.setException(ZmqException.contextNotAccessible()); // wake up those waiting for bind.
+      }
+      _inprocBinds.clear();
       if (_context != null) {
         try {
           _context.term();
@@ -147,4 +179,71 @@ public final class ZmqContext implements HasInit, HasDestroy {
       }
     }
   }
+
+  /**
+   * Returns future which completes when given inproc:// address gets bound by channel of this context.
+   * This allows to connect to inproc:// endpoint (which must be bound first) w/o spinning on connect.
+   */
+  public synchronized ListenableFuture<Void> whenBound(String addr) {
+    SettableFuture<Void> future = _inprocBinds.get(addr);
+    if (future == null) {
+      _inprocBinds.put(addr, (future = SettableFuture.create()));
+    }
+    return future;
+  }
+
+  synchronized void inprocBound(String addr) {
+    SettableFuture<Void> future = _inprocBinds.get(addr);
+    if (future == null) {
+      _inprocBinds.put(addr, (future = SettableFuture.create()));
+    }
+    future.set(null);
+  }
+
+  synchronized void inprocUnbound(String addr) {
+    SettableFuture<Void> future = _inprocBinds.get(addr);
+    if (future != null && future.isDone()) {
+      _inprocBinds.remove(addr);
+    }
+  }
+
+  synchronized void bindRing(String addr, RingTransport ring) {
+    if (!_accessible) {
+      throw ZmqException.contextNotAccessible();
+    }
+    if (_rings.containsKey(addr)) {
+      throw ZmqException.seeCause(new IllegalStateException("Address already in use: " + addr));
+    }
+    _rings.put(addr, ring);
+    notifyAll();
+  }
+
+  synchronized void unbindRing(String addr, RingTransport ring) {
+    if (_rings.get(addr) == ring) {
+      _rings.remove(addr);
+    }
+  }
+
+  /** Looks up bound ring endpoint, waits for it for {@code timeout} millis. */
+  synchronized RingTransport lookupRing(String addr, long timeout) {
+    long deadline = System.currentTimeMillis() + timeout;
+    for (; ; ) {
+      RingTransport ring = _rings.get(addr);
+      if (ring != null) {
+        return ring;
+      }
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        LOG.error("!!! Can't .connect(addr=" + addr + ")." + " Gave up after " + timeout + " millis.");
+        throw ZmqException.seeCause(new IllegalStateException("Nothing is bound on " + addr));
+      }
+      try {
+        wait(remaining);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw ZmqException.seeCause(e);
+      }
+    }
+  }
 }
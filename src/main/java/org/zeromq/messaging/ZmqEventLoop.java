@@ -0,0 +1,212 @@
+package org.zeromq.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.ZMQ;
+import org.zeromq.support.HasDrain;
+import org.zeromq.support.thread.IdleStrategy;
+import org.zeromq.support.thread.ZmqActor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Runs many {@link ZmqAbstractActor}-s on one thread: channels of all actors are registered on single
+ * shared {@link ZMQ.Poller}, every loop iteration polls it once (until the nearest timer of any actor at most)
+ * and lets every actor fire its timers, run its mailbox and {@link ZmqAbstractActor#react()}.
+ * <p/>
+ * Loop is {@link ZmqActor} itself, i.e. it's run by {@link org.zeromq.support.thread.ZmqProcess} as usual.
+ * Actors may be registered from any thread at any time, loop picks them up (and calls their {@code init()})
+ * on its own thread. See {@link ZmqEventLoopGroup}.
+ * <p/>
+ * Failing actor (exception at {@code init()}, timers or {@code react()}) is logged, taken off the loop and destroyed,
+ * the rest of the loop keeps running.
+ * <p/>
+ * <b>NOTE: actor must not block in {@code react()}, otherwise it stalls all actors of the loop.</b>
+ */
+public final class ZmqEventLoop implements ZmqActor, HasDrain {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZmqEventLoop.class);
+
+  private static final byte[] WAKEUP = new byte[1];
+
+  private final long pollTimeout;
+  private final IdleStrategy idleStrategy;
+
+  private final ZMQ.Poller _poller = new ZMQ.Poller(1);
+  private final List<ZmqAbstractActor> _actors = new ArrayList<ZmqAbstractActor>();
+  private final Queue<ZmqAbstractActor> _pending = new ConcurrentLinkedQueue<ZmqAbstractActor>();
+  /** Number of actors (running and pending), for balancing. */
+  private final AtomicInteger _actorNum = new AtomicInteger();
+  private final Pipe _wakeup;
+  private final AtomicBoolean _wokenUp = new AtomicBoolean();
+  private final ByteBuffer _drainBuf = ByteBuffer.allocate(64);
+  private int _wakeupInd;
+
+  //// CONSTRUCTORS
+
+  ZmqEventLoop(long pollTimeout, IdleStrategy idleStrategy) {
+    checkArgument(pollTimeout >= 0, "Wrong pollTimeout=" + pollTimeout);
+    checkArgument(idleStrategy != null);
+    this.pollTimeout = pollTimeout;
+    this.idleStrategy = idleStrategy;
+    try {
+      _wakeup = Pipe.open();
+      _wakeup.source().configureBlocking(false);
+    }
+    catch (IOException e) {
+      throw ZmqException.seeCause(e);
+    }
+  }
+
+  //// METHODS
+
+  /** Adds actor to the loop. Can be called from any thread. */
+  public void register(ZmqAbstractActor actor) {
+    checkArgument(actor != null);
+    _actorNum.incrementAndGet();
+    _pending.add(actor);
+    wakeup();
+  }
+
+  /** @return number of actors registered on this loop. */
+  public int actorNum() {
+    return _actorNum.get();
+  }
+
+  @Override
+  public void init() {
+    _wakeupInd = _poller.register(_wakeup.source(), ZMQ.Poller.POLLIN);
+  }
+
+  @Override
+  public void exec() throws Exception {
+    initPending();
+
+    boolean retried = false;
+    for (ZmqAbstractActor actor : _actors) {
+      if (actor.isParkedRetried()) {
+        retried = true;
+        break;
+      }
+    }
+    long timeout = retried ? Math.min(pollTimeout, ZmqAbstractActor.PARKED_POLL_TIMEOUT) : pollTimeout;
+    for (ZmqAbstractActor actor : _actors) {
+      timeout = actor.timersTimeout(timeout);
+    }
+    int events = _poller.poll(idleStrategy.pollTimeout(timeout));
+    idleStrategy.idle(events);
+
+    if (_poller.pollin(_wakeupInd)) {
+      clearWakeup();
+    }
+
+    for (Iterator<ZmqAbstractActor> iter = _actors.iterator(); iter.hasNext(); ) {
+      ZmqAbstractActor actor = iter.next();
+      try {
+        actor.flushWritable();
+        actor.fireTimers();
+        actor.runMailbox();
+        actor.react();
+      }
+      catch (Exception e) {
+        // failing actor is isolated: it's dropped, its neighbours keep running.
+        LOG.error("!!! Got: " + e + " at actor.react(), actor=" + actor + ". Actor is destroyed.", e);
+        iter.remove();
+        destroy(actor);
+      }
+    }
+  }
+
+  /** Drains every actor of the loop, see {@link ZmqAbstractActor#drain(long)}. Pending actors are dropped. */
+  @Override
+  public boolean drain(long deadline) {
+    while (_pending.poll() != null) {
+      _actorNum.decrementAndGet();
+    }
+    boolean drained = true;
+    for (ZmqAbstractActor actor : _actors) {
+      drained &= actor.drain(deadline);
+    }
+    return drained;
+  }
+
+  @Override
+  public void destroy() {
+    _pending.clear();
+    for (ZmqAbstractActor actor : _actors) {
+      destroy(actor);
+    }
+    _actors.clear();
+    _actorNum.set(0);
+    _poller.unregister(_wakeup.source());
+    try {
+      _wakeup.sink().close();
+      _wakeup.source().close();
+    }
+    catch (IOException e) {
+      LOG.warn("Gobble exception at closing wakeup pipe: " + e);
+    }
+  }
+
+  private void initPending() {
+    ZmqAbstractActor actor;
+    while ((actor = _pending.poll()) != null) {
+      actor.attach(_poller);
+      try {
+        actor.init();
+      }
+      catch (RuntimeException e) {
+        LOG.error("!!! Got: " + e + " at actor.init(), actor=" + actor + ". Actor is destroyed.", e);
+        destroy(actor);
+        continue;
+      }
+      _actors.add(actor);
+    }
+  }
+
+  private void destroy(ZmqAbstractActor actor) {
+    _actorNum.decrementAndGet();
+    try {
+      actor.destroy();
+    }
+    catch (Exception e) {
+      LOG.error("!!! Gobble exception at actor.destroy(): " + e, e);
+    }
+  }
+
+  private void wakeup() {
+    if (_wokenUp.compareAndSet(false, true)) {
+      try {
+        _wakeup.sink().write(ByteBuffer.wrap(WAKEUP));
+      }
+      catch (IOException e) {
+        LOG.warn("Gobble exception at wakeup(): " + e);
+      }
+    }
+  }
+
+  /** Actors registered before flag is reset are picked up by {@link #initPending()} at the next iteration. */
+  private void clearWakeup() {
+    try {
+      do {
+        _drainBuf.clear();
+      }
+      while (_wakeup.source().read(_drainBuf) > 0);
+    }
+    catch (IOException e) {
+      LOG.warn("Gobble exception at clearWakeup(): " + e);
+    }
+    _wokenUp.set(false);
+  }
+}
@@ -0,0 +1,165 @@
+package org.zeromq.messaging;
+
+import org.zeromq.support.HasDestroy;
+import org.zeromq.support.HasInit;
+import org.zeromq.support.HasInvariant;
+import org.zeromq.support.ObjectBuilder;
+import org.zeromq.support.thread.IdleStrategy;
+import org.zeromq.support.thread.ZmqProcess;
+import org.zeromq.support.thread.ZmqRuntime;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Fixed group of {@link ZmqEventLoop}-s, each on its own daemon thread (see {@link ZmqRuntime}, which
+ * also gives graceful drain at {@link #destroy()}). Actors are assigned to loops by
+ * {@link Balancing} policy, so that hundreds of small actors share a few threads (and pollers)
+ * instead of getting one thread each.
+ * <p/>
+ * Usage:
+ * <pre>
+ *   ZmqEventLoopGroup group = ZmqEventLoopGroup.builder().withLoopNum(4).build();
+ *   group.init();
+ *   group.register(actor); // actor is init-ed, run and destroyed by the loop.
+ *   ...
+ *   group.destroy();
+ * </pre>
+ */
+public final class ZmqEventLoopGroup implements HasInit, HasDestroy {
+
+  private static final long DEFAULT_POLL_TIMEOUT = 1000;
+  private static final long DEFAULT_DRAIN_TIMEOUT = 3000;
+
+  public static enum Balancing {
+    /** Loops take actors in turn. */
+    ROUND_ROBIN,
+    /** Actor goes to the loop with the fewest actors. */
+    LEAST_LOADED
+  }
+
+  public static final class Builder implements ObjectBuilder<ZmqEventLoopGroup>, HasInvariant {
+
+    private final ZmqEventLoopGroup _target = new ZmqEventLoopGroup();
+
+    private Builder() {
+    }
+
+    public Builder withLoopNum(int loopNum) {
+      _target.loopNum = loopNum;
+      return this;
+    }
+
+    public Builder withBalancing(Balancing balancing) {
+      _target.balancing = balancing;
+      return this;
+    }
+
+    public Builder withPollTimeout(long pollTimeout) {
+      _target.pollTimeout = pollTimeout;
+      return this;
+    }
+
+    /** @param drainTimeout how long loops drain their actors at {@link #destroy()}, see {@link ZmqRuntime}. */
+    public Builder withDrainTimeout(long drainTimeout) {
+      _target.drainTimeout = drainTimeout;
+      return this;
+    }
+
+    /** @param idleStrategy builds {@link IdleStrategy} for every loop (strategies are stateful). */
+    public Builder withIdleStrategy(ObjectBuilder<IdleStrategy> idleStrategy) {
+      _target.idleStrategy = idleStrategy;
+      return this;
+    }
+
+    @Override
+    public void checkInvariant() {
+      checkArgument(_target.loopNum > 0, "Wrong loopNum=" + _target.loopNum);
+      checkArgument(_target.balancing != null);
+      checkArgument(_target.pollTimeout >= 0, "Wrong pollTimeout=" + _target.pollTimeout);
+      checkArgument(_target.drainTimeout >= 0, "Wrong drainTimeout=" + _target.drainTimeout);
+    }
+
+    @Override
+    public ZmqEventLoopGroup build() {
+      checkInvariant();
+      return _target;
+    }
+  }
+
+  private int loopNum = Runtime.getRuntime().availableProcessors();
+  private Balancing balancing = Balancing.LEAST_LOADED;
+  private long pollTimeout = DEFAULT_POLL_TIMEOUT;
+  private long drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+  private ObjectBuilder<IdleStrategy> idleStrategy;
+
+  private ZmqEventLoop[] _loops;
+  private ZmqRuntime _runtime;
+  private final AtomicInteger _counter = new AtomicInteger();
+
+  //// CONSTRUCTORS
+
+  private ZmqEventLoopGroup() {
+  }
+
+  //// METHODS
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public void init() {
+    checkState(_loops == null, "Group is initialized already!");
+    _loops = new ZmqEventLoop[loopNum];
+    ZmqRuntime.Builder runtime = ZmqRuntime.builder()
+                                           .withThreadNum(loopNum)
+                                           .withThreadNameFormat("zmq-loop-%d")
+                                           .withDrainTimeout(drainTimeout);
+    for (int i = 0; i < loopNum; i++) {
+      IdleStrategy strategy = idleStrategy != null ? idleStrategy.build() : IdleStrategy.blocking();
+      _loops[i] = new ZmqEventLoop(pollTimeout, strategy);
+      runtime.with(ZmqProcess.builder().with(_loops[i]).build());
+    }
+    _runtime = runtime.build();
+    _runtime.init();
+  }
+
+  /**
+   * Assigns actor to one of the loops.
+   *
+   * @return loop actor was assigned to.
+   */
+  public ZmqEventLoop register(ZmqAbstractActor actor) {
+    checkState(_loops != null, "Group isn't initialized!");
+    ZmqEventLoop loop = choose();
+    loop.register(actor);
+    return loop;
+  }
+
+  @Override
+  public void destroy() {
+    if (_runtime != null) {
+      _runtime.destroy();
+    }
+  }
+
+  private ZmqEventLoop choose() {
+    switch (balancing) {
+      case ROUND_ROBIN:
+        return _loops[(_counter.getAndIncrement() & Integer.MAX_VALUE) % _loops.length];
+      case LEAST_LOADED:
+        ZmqEventLoop least = _loops[0];
+        for (int i = 1; i < _loops.length; i++) {
+          if (_loops[i].actorNum() < least.actorNum()) {
+            least = _loops[i];
+          }
+        }
+        return least;
+      default:
+        throw new UnsupportedOperationException("Unsupported balancing=" + balancing);
+    }
+  }
+}
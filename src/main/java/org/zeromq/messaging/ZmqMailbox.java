@@ -0,0 +1,131 @@
+package org.zeromq.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.ZMQ;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Tasks handed to actor from other threads, see {@link ZmqAbstractActor#execute(Runnable)}.
+ * <p/>
+ * Tasks go to lock-free queue, the first one after actor had taken tasks signals pipe registered on actor's poller,
+ * so that blocked poll wakes up. Actor runs tasks on its own thread, in order of submission.
+ */
+final class ZmqMailbox {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZmqMailbox.class);
+
+  private static final byte[] SIGNAL = new byte[1];
+
+  private final ZMQ.Poller poller;
+
+  private final Queue<Runnable> _tasks = new ConcurrentLinkedQueue<Runnable>();
+  private final AtomicBoolean _signalled = new AtomicBoolean();
+  private final Pipe _signal;
+  private final ByteBuffer _drainBuf = ByteBuffer.allocate(64);
+  private final int _signalInd;
+
+  //// CONSTRUCTORS
+
+  ZmqMailbox(ZMQ.Poller poller) {
+    checkArgument(poller != null);
+    this.poller = poller;
+    try {
+      _signal = Pipe.open();
+      _signal.source().configureBlocking(false);
+    }
+    catch (IOException e) {
+      throw ZmqException.seeCause(e);
+    }
+    _signalInd = poller.register(_signal.source(), ZMQ.Poller.POLLIN);
+  }
+
+  //// METHODS
+
+  /** Can be called from any thread. */
+  void add(Runnable task) {
+    checkArgument(task != null);
+    _tasks.add(task);
+    signal();
+  }
+
+  /**
+   * Runs tasks submitted so far (at most {@code limit} of them, the rest stays signalled for the next poll).
+   * Exception from task is re-thrown, tasks after it stay in the mailbox.
+   *
+   * @return number of tasks run.
+   */
+  int run(int limit) throws Exception {
+    if (_signalled.get() || poller.pollin(_signalInd)) {
+      clearSignal();
+    }
+    int n = 0;
+    try {
+      Runnable task;
+      while (n < limit && (task = _tasks.poll()) != null) {
+        n++;
+        task.run();
+      }
+    }
+    finally {
+      if (!_tasks.isEmpty()) {
+        signal();
+      }
+    }
+    return n;
+  }
+
+  boolean isEmpty() {
+    return _tasks.isEmpty();
+  }
+
+  /** Unregisters mailbox from poller, tasks which haven't been run are dropped. */
+  void close() {
+    int dropped = _tasks.size();
+    if (dropped > 0) {
+      LOG.warn("!!! Mailbox closed, " + dropped + " tasks will be lost.");
+    }
+    _tasks.clear();
+    poller.unregister(_signal.source());
+    try {
+      _signal.sink().close();
+      _signal.source().close();
+    }
+    catch (IOException e) {
+      LOG.warn("Gobble exception at closing mailbox pipe: " + e);
+    }
+  }
+
+  private void signal() {
+    if (_signalled.compareAndSet(false, true)) {
+      try {
+        _signal.sink().write(ByteBuffer.wrap(SIGNAL));
+      }
+      catch (IOException e) {
+        LOG.warn("Gobble exception at signal(): " + e);
+      }
+    }
+  }
+
+  /** Tasks added after flag is reset signal again. */
+  private void clearSignal() {
+    try {
+      do {
+        _drainBuf.clear();
+      }
+      while (_signal.source().read(_drainBuf) > 0);
+    }
+    catch (IOException e) {
+      LOG.warn("Gobble exception at clearSignal(): " + e);
+    }
+    _signalled.set(false);
+  }
+}
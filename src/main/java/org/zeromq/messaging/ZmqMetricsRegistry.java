@@ -0,0 +1,60 @@
+package org.zeromq.messaging;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of {@link ZmqChannelMetrics} of all live channels produced by {@link ZmqContext}.
+ * <p/>
+ * Metrics are keyed by socket type and addresses (the same ones which are logged when channel is created),
+ * e.g. {@code ROUTER bind=[tcp://*:6677] connect=[]}. Several channels can share the same key -- then
+ * their counters are summed up in {@link #snapshot()}.
+ */
+public final class ZmqMetricsRegistry {
+
+  private final Map<String, List<ZmqChannelMetrics>> _metrics = new LinkedHashMap<String, List<ZmqChannelMetrics>>();
+
+  //// METHODS
+
+  synchronized void register(ZmqChannelMetrics metrics) {
+    List<ZmqChannelMetrics> list = _metrics.get(metrics.key());
+    if (list == null) {
+      _metrics.put(metrics.key(), (list = new ArrayList<ZmqChannelMetrics>(1)));
+    }
+    list.add(metrics);
+  }
+
+  synchronized void unregister(ZmqChannelMetrics metrics) {
+    List<ZmqChannelMetrics> list = _metrics.get(metrics.key());
+    if (list != null) {
+      list.remove(metrics);
+      if (list.isEmpty()) {
+        _metrics.remove(metrics.key());
+      }
+    }
+  }
+
+  /** @return metrics of live channels registered under given key. */
+  public synchronized List<ZmqChannelMetrics> get(String key) {
+    List<ZmqChannelMetrics> list = _metrics.get(key);
+    return list != null ? new ArrayList<ZmqChannelMetrics>(list) : new ArrayList<ZmqChannelMetrics>();
+  }
+
+  /** @return counters of live channels, summed up per key. */
+  public synchronized Map<String, Map<String, Long>> snapshot() {
+    Map<String, Map<String, Long>> snapshot = new LinkedHashMap<String, Map<String, Long>>();
+    for (Map.Entry<String, List<ZmqChannelMetrics>> entry : _metrics.entrySet()) {
+      Map<String, Long> sum = new LinkedHashMap<String, Long>();
+      for (ZmqChannelMetrics metrics : entry.getValue()) {
+        for (Map.Entry<String, Long> counter : metrics.snapshot().entrySet()) {
+          Long value = sum.get(counter.getKey());
+          sum.put(counter.getKey(), value != null ? value + counter.getValue() : counter.getValue());
+        }
+      }
+      snapshot.put(entry.getKey(), sum);
+    }
+    return snapshot;
+  }
+}
@@ -0,0 +1,172 @@
+package org.zeromq.messaging;
+
+import org.zeromq.support.pool.BytesPool;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.zeromq.messaging.ZmqFrames.BYTE_SUB;
+import static org.zeromq.messaging.ZmqFrames.BYTE_UNSUB;
+
+/**
+ * Reusable counterpart of {@link ZmqFrames}. Meant to be allocated once and then be filled by
+ * {@link ZmqChannel#recv(ZmqPooledFrames, int)} over and over again.
+ * <p/>
+ * Frames are kept in buffers borrowed from {@link BytesPool}, and since pooled buffers are size-classed
+ * actual frame length is tracked separately -- see {@link #buf(int)} and {@link #length(int)}.
+ * Buffers are returned to pool on {@link #clear()}, which happens implicitly on every receive.
+ * <p/>
+ * <b>NOTE: this class isn't thread safe.</b>
+ */
+public final class ZmqPooledFrames {
+
+  private static final int DEFAULT_CAPACITY = 8; // just best guess.
+
+  private final BytesPool pool;
+
+  private byte[][] _bufs = new byte[DEFAULT_CAPACITY][];
+  private int[] _lens = new int[DEFAULT_CAPACITY];
+  private int _size;
+
+  //// CONSTRUCTORS
+
+  public ZmqPooledFrames(int maxFrameSize) {
+    this(new BytesPool(maxFrameSize));
+  }
+
+  public ZmqPooledFrames(BytesPool pool) {
+    checkArgument(pool != null);
+    this.pool = pool;
+  }
+
+  //// METHODS
+
+  public int size() {
+    return _size;
+  }
+
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  /** @return pooled buffer holding frame at {@code i}. Only first {@link #length(int)} bytes are valid. */
+  public byte[] buf(int i) {
+    checkArgument(i < _size, "Wrong frame index: " + i);
+    return _bufs[i];
+  }
+
+  public int length(int i) {
+    checkArgument(i < _size, "Wrong frame index: " + i);
+    return _lens[i];
+  }
+
+  /** Releases all frame buffers back to pool. */
+  public void clear() {
+    for (int i = 0; i < _size; i++) {
+      pool.release(_bufs[i]);
+      _bufs[i] = null;
+    }
+    _size = 0;
+  }
+
+  /** Appends copy of {@code src[0..len)} as a new frame. */
+  public void add(byte[] src, int len) {
+    if (_size == _bufs.length) {
+      _bufs = Arrays.copyOf(_bufs, _size << 1);
+      _lens = Arrays.copyOf(_lens, _size << 1);
+    }
+    byte[] buf = pool.borrow(len);
+    System.arraycopy(src, 0, buf, 0, len);
+    _bufs[_size] = buf;
+    _lens[_size] = len;
+    _size++;
+  }
+
+  /**
+   * Appends {@code frame} as is, w/o copying. Frame gets released to pool on {@link #clear()}
+   * (and is kept there only if it fits a size class).
+   */
+  public void adopt(byte[] frame) {
+    checkArgument(frame != null);
+    if (_size == _bufs.length) {
+      _bufs = Arrays.copyOf(_bufs, _size << 1);
+      _lens = Arrays.copyOf(_lens, _size << 1);
+    }
+    _bufs[_size] = frame;
+    _lens[_size] = frame.length;
+    _size++;
+  }
+
+  public byte getExtPubSub() {
+    checkArgument(_size == 1, "Wrong frames.size: " + _size);
+    byte b = _bufs[0][0];
+    checkArgument(BYTE_SUB == b || BYTE_UNSUB == b, "Unrecognized ExtPubSub byte: " + b);
+    return b;
+  }
+
+  public int getExtPubSubTopicLength() {
+    checkArgument(_size == 1, "Wrong frames.size: " + _size);
+    return _lens[0] > 1 ? _lens[0] - 1 : 0;
+  }
+
+  public int getTopicLength() {
+    checkArgument(_size > 0, "Wrong frames.size: " + _size);
+    return _lens[0];
+  }
+
+  /** @return length of the payload carried by the last frame. */
+  public int getPayloadLength() {
+    checkArgument(_size > 0, "Wrong frames.size: " + _size);
+    byte[] buf = _bufs[_size - 1];
+    return ((buf[0] & 0xFF) << 24) | ((buf[1] & 0xFF) << 16) | ((buf[2] & 0xFF) << 8) | buf[3] & 0xFF;
+  }
+
+  /** Compares payload against {@code bytes} w/o copying payload out. */
+  public boolean payloadEquals(byte[] bytes) {
+    if (getPayloadLength() != bytes.length) {
+      return false;
+    }
+    byte[] buf = _bufs[_size - 1];
+    for (int i = 0; i < bytes.length; i++) {
+      if (buf[4 + i] != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Copies payload out. See {@link ZmqFrames#getPayload()}. */
+  public byte[] getPayload() {
+    return Arrays.copyOfRange(_bufs[_size - 1], 4, 4 + getPayloadLength());
+  }
+
+  /**
+   * Copies out bytes which follow the payload in the last frame, see
+   * {@link ZmqChannel#route(ZmqFrames, byte[], byte[], int)}.
+   *
+   * @return trailer, empty array if there's none.
+   */
+  public byte[] getTrailer() {
+    return Arrays.copyOfRange(_bufs[_size - 1], 4 + getPayloadLength(), _lens[_size - 1]);
+  }
+
+  /** Copies identities out. See {@link ZmqFrames#getIdentities()}. */
+  public ZmqFrames getIdentities() {
+    ZmqFrames identities = new ZmqFrames();
+    int emptyFrameSeen = 0;
+    for (int i = 0; i < _size; i++) {
+      int len = _lens[i];
+      if (len == 0) {
+        ++emptyFrameSeen;
+      }
+      if (emptyFrameSeen == 2) {
+        break;
+      }
+      if (len != 0) {
+        emptyFrameSeen = 0;
+        identities.add(Arrays.copyOf(_bufs[i], len));
+      }
+    }
+    return identities;
+  }
+}
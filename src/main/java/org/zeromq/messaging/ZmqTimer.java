@@ -0,0 +1,39 @@
+package org.zeromq.messaging;
+
+import org.zeromq.support.timer.HashedWheelTimer;
+
+/**
+ * Handle of scheduled {@link ZmqTimerTask}, see {@link ZmqAbstractActor#schedule(long, long, ZmqTimerTask)}.
+ * <p/>
+ * <b>NOTE: timers belong to actor, they must be scheduled and cancelled on actor's thread.</b>
+ */
+public final class ZmqTimer extends HashedWheelTimer.Node {
+
+  final HashedWheelTimer wheel;
+  final ZmqTimerTask task;
+  /** 0 means one-shot timer. */
+  final long period;
+  /** Wall-clock expiry time (millis). */
+  long deadline;
+  private boolean cancelled;
+
+  //// CONSTRUCTORS
+
+  ZmqTimer(HashedWheelTimer wheel, ZmqTimerTask task, long period) {
+    this.wheel = wheel;
+    this.task = task;
+    this.period = period;
+  }
+
+  //// METHODS
+
+  /** Cancels timer, task won't be called anymore. */
+  public void cancel() {
+    cancelled = true;
+    wheel.cancel(this);
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+}
@@ -0,0 +1,10 @@
+package org.zeromq.messaging;
+
+/**
+ * Timer callback, see {@link ZmqAbstractActor#schedule(long, long, ZmqTimerTask)}.
+ */
+public interface ZmqTimerTask {
+
+  /** Called on actor's thread when timer expires. Task is expected not to block. */
+  void onTimer() throws Exception;
+}
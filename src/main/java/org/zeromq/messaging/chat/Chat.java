@@ -5,7 +5,8 @@ import org.slf4j.LoggerFactory;
 import org.zeromq.messaging.Props;
 import org.zeromq.messaging.ZmqAbstractActor;
 import org.zeromq.messaging.ZmqChannel;
-import org.zeromq.messaging.ZmqFrames;
+import org.zeromq.messaging.ZmqChannelHandler;
+import org.zeromq.messaging.ZmqPooledFrames;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.zeromq.ZMQ.DONTWAIT;
@@ -85,6 +86,9 @@ public final class Chat extends ZmqAbstractActor {
   private Props frontendSub;
   private Props clusterSub;
 
+  /** Reusable container for incoming traffic, shared by all channels (they are served one after another). */
+  private ZmqPooledFrames _frames;
+
   //// CONSTRUCTORS
 
   private Chat() {
@@ -125,101 +129,99 @@ public final class Chat extends ZmqAbstractActor {
   public void init() {
     checkInvariant();
 
-    put(FRONTEND_PUB, ZmqChannel.XSUB(ctx).with(frontendPub).build()).watchRecv(_poller);
-    put(CLUSTER_PUB, ZmqChannel.XPUB(ctx).with(clusterPub).build()).watchRecv(_poller);
-    put(FRONTEND_SUB, ZmqChannel.XPUB(ctx).with(frontendSub).build()).watchRecv(_poller);
-    put(CLUSTER_SUB, ZmqChannel.XSUB(ctx).with(clusterSub).build()).watchRecv(_poller);
+    // bounded frames are received into pooled ones w/o allocation, see ZmqChannel.recv(ZmqPooledFrames, int).
+    this.frontendPub = this.frontendPub.bounded();
+    this.clusterPub = this.clusterPub.bounded();
+    this.frontendSub = this.frontendSub.bounded();
+    this.clusterSub = this.clusterSub.bounded();
+    _frames = new ZmqPooledFrames(Math.max(Math.max(frontendPub.payloadBufCapacity(), clusterPub.payloadBufCapacity()),
+                                           Math.max(frontendSub.payloadBufCapacity(), clusterSub.payloadBufCapacity())));
+
+    ZmqChannel frontendPub = ZmqChannel.XSUB(ctx).with(this.frontendPub).build();
+    ZmqChannel clusterPub = ZmqChannel.XPUB(ctx).with(this.clusterPub).build();
+    ZmqChannel frontendSub = ZmqChannel.XPUB(ctx).with(this.frontendSub).build();
+    ZmqChannel clusterSub = ZmqChannel.XSUB(ctx).with(this.clusterSub).build();
+
+    register(FRONTEND_PUB, frontendPub, new MessageForward(clusterPub, "local --> cluster"));
+    register(CLUSTER_PUB, clusterPub, new SubscriptionForward(frontendPub, "local <-- cluster"));
+    register(FRONTEND_SUB, frontendSub, new SubscriptionForward(clusterSub, "local --> cluster"));
+    register(CLUSTER_SUB, clusterSub, new MessageForward(frontendSub, "local <-- cluster"));
 
     // By default, unconditionally, Chat is set to handle duplicate subscriptions/unsubscriptions.
-    get(CLUSTER_PUB).setExtendedPubSubVerbose();
-    get(FRONTEND_SUB).setExtendedPubSubVerbose();
+    clusterPub.setExtendedPubSubVerbose();
+    frontendSub.setExtendedPubSubVerbose();
   }
 
-  @Override
-  public void exec() throws Exception {
-    poll();
+  /** Forwards messages as is. */
+  private final class MessageForward implements ZmqChannelHandler {
 
-    ZmqChannel frontendPub = get(FRONTEND_PUB);
-    ZmqChannel clusterPub = get(CLUSTER_PUB);
-    ZmqChannel clusterSub = get(CLUSTER_SUB);
-    ZmqChannel frontendSub = get(FRONTEND_SUB);
+    final ZmqChannel target;
+    final String direction;
 
-    if (frontendPub.canRecv()) {
-      for (; ; ) {
-        ZmqFrames frames = frontendPub.recv(DONTWAIT);
-        if (frames == null)
-          break;
-
-        clusterPub.sendFrames(frames, DONTWAIT);
-        logMessage("local --> cluster", frames);
-      }
+    MessageForward(ZmqChannel target, String direction) {
+      this.target = target;
+      this.direction = direction;
     }
 
-    if (clusterPub.canRecv()) {
+    @Override
+    public void onRecv(ZmqChannel channel) {
       for (; ; ) {
-        ZmqFrames frames = clusterPub.recv(DONTWAIT);
-        if (frames == null)
+        if (!channel.recv(_frames, DONTWAIT))
           break;
 
-        frontendPub.sendFrames(frames, DONTWAIT);
-        byte b = frames.getExtPubSub();
-        byte[] topic = frames.getExtPubSubTopic();
-        if (b == BYTE_SUB) {
-          logSubscribe("local <-- cluster", topic);
-        }
-        else if (b == BYTE_UNSUB) {
-          logUnsubscribe("local <-- cluster", topic);
-        }
+        target.sendFrames(_frames, DONTWAIT);
+        logMessage(direction, _frames);
       }
     }
+  }
 
-    if (clusterSub.canRecv()) {
-      for (; ; ) {
-        ZmqFrames frames = clusterSub.recv(DONTWAIT);
-        if (frames == null)
-          break;
+  /** Forwards subscriptions/unsubscriptions. */
+  private final class SubscriptionForward implements ZmqChannelHandler {
 
-        frontendSub.sendFrames(frames, DONTWAIT);
-        logMessage("local <-- cluster", frames);
-      }
+    final ZmqChannel target;
+    final String direction;
+
+    SubscriptionForward(ZmqChannel target, String direction) {
+      this.target = target;
+      this.direction = direction;
     }
 
-    if (frontendSub.canRecv()) {
+    @Override
+    public void onRecv(ZmqChannel channel) {
       for (; ; ) {
-        ZmqFrames frames = frontendSub.recv(DONTWAIT);
-        if (frames == null)
+        if (!channel.recv(_frames, DONTWAIT))
           break;
 
-        clusterSub.sendFrames(frames, DONTWAIT);
-        byte b = frames.getExtPubSub();
-        byte[] topic = frames.getExtPubSubTopic();
+        target.sendFrames(_frames, DONTWAIT);
+        byte b = _frames.getExtPubSub();
         if (b == BYTE_SUB) {
-          logSubscribe("local --> cluster", topic);
+          logSubscribe(direction, _frames);
         }
         else if (b == BYTE_UNSUB) {
-          logUnsubscribe("local --> cluster", topic);
+          logUnsubscribe(direction, _frames);
         }
       }
     }
   }
 
-  private void logMessage(String direction, ZmqFrames frames) {
+  private void logMessage(String direction, ZmqPooledFrames frames) {
     if (LOGGER.isDebugEnabled()) {
-      byte[] topic = frames.getTopic();
-      byte[] payload = frames.getPayload();
-      LOGGER.debug("Message: {} (topic={} bytes, payload={} bytes).", direction, topic.length, payload.length);
+      LOGGER.debug("Message: {} (topic={} bytes, payload={} bytes).",
+                   direction,
+                   frames.getTopicLength(),
+                   frames.getPayloadLength());
     }
   }
 
-  private void logSubscribe(String direction, byte[] topic) {
+  private void logSubscribe(String direction, ZmqPooledFrames frames) {
     if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug("Subscribe: {} (topic={} bytes).", direction, topic.length);
+      LOGGER.debug("Subscribe: {} (topic={} bytes).", direction, frames.getExtPubSubTopicLength());
     }
   }
 
-  private void logUnsubscribe(String direction, byte[] topic) {
+  private void logUnsubscribe(String direction, ZmqPooledFrames frames) {
     if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug("Unsubscribe: {} (topic={} bytes).", direction, topic.length);
+      LOGGER.debug("Unsubscribe: {} (topic={} bytes).", direction, frames.getExtPubSubTopicLength());
     }
   }
 }
@@ -1,14 +1,18 @@
 package org.zeromq.messaging.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.zeromq.messaging.ZmqChannel;
 import org.zeromq.messaging.ZmqFrames;
 
-import static com.google.common.base.Preconditions.checkState;
-import static org.zeromq.ZMQ.DONTWAIT;
+import java.util.concurrent.Executor;
 
+import static com.google.common.base.Preconditions.checkState;
 @SuppressWarnings("unchecked")
 public abstract class AbstractProcessor<T extends AbstractProcessor> implements Processor<T> {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(AbstractProcessor.class);
+
   /**
    * Original message route.
    * Use following functions to work with this field: {@link #origin()}, {@link #root()}.
@@ -28,6 +32,15 @@ public abstract class AbstractProcessor<T extends AbstractProcessor> implements
    * Use following functions to work with this field: {@link #thisMaster()}, {@link #thisSlave()}.
    */
   private Object[] identities;
+  /** Where {@link #defer()} puts requests which can't be routed yet. Set by master {@link Worker}. */
+  private Backlog backlog;
+  /**
+   * {@link Worker}'s socket thread (its mailbox). Set when processor runs off that thread (see {@link ProcessorPool}):
+   * then {@link #route()} and {@link #defer()} are handed to it rather than done in place.
+   */
+  private Executor executor;
+  /** {@link Worker} running this processor, see {@link #reply()}. */
+  private Worker worker;
 
   @Override
   public final T set(ZmqFrames route) {
@@ -59,6 +72,21 @@ public abstract class AbstractProcessor<T extends AbstractProcessor> implements
     return (T) this;
   }
 
+  /**
+   * Hands {@link Worker}'s internals over to processor: {@code backlog} (null unless worker is master),
+   * {@code executor} (null if processor runs on socket thread) and {@code worker} itself. They aren't part
+   * of {@link Processor} contract: processors which don't extend this class can't {@link #defer()} nor
+   * {@link #reply()}, and can't run on {@link ProcessorPool}.
+   */
+  static void init(Processor processor, Backlog backlog, Executor executor, Worker worker) {
+    if (processor instanceof AbstractProcessor) {
+      AbstractProcessor target = (AbstractProcessor) processor;
+      target.backlog = backlog;
+      target.executor = executor;
+      target.worker = worker;
+    }
+  }
+
   /**
    * Indicates that received {@link #route} and {@link #payload} are coming from some outer source,
    * i.e. neither from master and nor from slave.
@@ -128,8 +156,12 @@ public abstract class AbstractProcessor<T extends AbstractProcessor> implements
     if (routings[0].available() == 0)
       return null;
 
+    byte[] master = routings[0].get(root(), payload);
+    if (master == null)
+      return null;
+
     ZmqFrames frames = new ZmqFrames();
-    frames.add(routings[0].get(root(), payload)); // where-to-go.
+    frames.add(master); // where-to-go.
     frames.add(thisSlave()); // where-reply-to (i.e. on this slave).
     frames.addAll(route); // put all rest.
     return frames;
@@ -149,15 +181,72 @@ public abstract class AbstractProcessor<T extends AbstractProcessor> implements
     if (routings[1].available() == 0)
       return null;
 
+    byte[] slave = routings[1].get(root(), payload);
+    if (slave == null)
+      return null;
+
     ZmqFrames frames = new ZmqFrames();
-    frames.add(routings[1].get(root(), payload)); // where-to-go.
+    frames.add(slave); // where-to-go.
     frames.add(thisMaster()); // where-reply-to (i.e. on this master).
     frames.addAll(route); // put all rest.
     return frames;
   }
 
-  /** Shortcut method. Takes existing {@link #route} and {@link #payload} and routes them. */
+  /**
+   * Puts current {@link #route} and {@link #payload} (of {@link #onRoot()}) to master's backlog, e.g. when
+   * {@link #nextSlaveRoute()} returned null because no slave has credit. Request is replayed through
+   * {@link #onRoot()} once slaves get credit back.
+   *
+   * @return false if backlog is full, i.e. request is dropped. Always true off socket thread (request is
+   *         handed to it, and dropped there if backlog is full).
+   */
+  protected final boolean defer() {
+    checkState(backlog != null, "Backlog is available in master mode only!");
+    if (executor == null) {
+      return backlog.add(route, payload);
+    }
+    final Backlog backlog = this.backlog;
+    final ZmqFrames route = this.route;
+    final byte[] payload = this.payload;
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (!backlog.add(route, payload)) {
+          LOGGER.warn("!!! Backlog is full, request dropped.");
+        }
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Captures current {@link #route}, so that reply can be sent later from any thread (see {@link Reply}).
+   * Processor must not call {@link #route()} for this message then.
+   */
+  protected final Reply reply() {
+    checkState(worker != null, "Worker isn't set!");
+    return worker.reply(new ZmqFrames(route));
+  }
+
+  /**
+   * Shortcut method. Takes existing {@link #route} and {@link #payload} and routes them.
+   *
+   * @return false if message wasn't sent. Always true off socket thread (message is handed to it).
+   */
   public final boolean route() {
-    return router.route(route, payload, DONTWAIT);
+    if (executor == null) {
+      return Worker.route(router, route, payload, identities);
+    }
+    final ZmqChannel router = this.router;
+    final ZmqFrames route = this.route;
+    final byte[] payload = this.payload;
+    final Object[] identities = this.identities;
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        Worker.route(router, route, payload, identities);
+      }
+    });
+    return true;
   }
 }
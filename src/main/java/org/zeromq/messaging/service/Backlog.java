@@ -0,0 +1,91 @@
+package org.zeromq.messaging.service;
+
+import org.zeromq.messaging.ZmqFrames;
+
+import java.util.ArrayDeque;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bounded queue of requests which master couldn't route yet (e.g. no slave has credit, see {@link CreditRouting}).
+ * Requests are put by {@link AbstractProcessor#defer()} and replayed by {@link Worker} through
+ * {@link Processor#onRoot()} once slaves can take them.
+ * <p/>
+ * <b>NOTE: not thread safe, belongs to single {@link Worker}.</b>
+ */
+public final class Backlog {
+
+  private static final class Request {
+
+    final ZmqFrames route;
+    final byte[] payload;
+
+    Request(ZmqFrames route, byte[] payload) {
+      this.route = route;
+      this.payload = payload;
+    }
+  }
+
+  private final int capacity;
+  private final ArrayDeque<Request> _requests = new ArrayDeque<Request>();
+  /** While replaying, request deferred again goes back to the head, so that order is kept. */
+  private boolean _replaying;
+  private Request _head;
+
+  //// CONSTRUCTORS
+
+  public Backlog(int capacity) {
+    checkArgument(capacity > 0, "Wrong capacity=" + capacity);
+    this.capacity = capacity;
+  }
+
+  //// METHODS
+
+  public int size() {
+    return _requests.size();
+  }
+
+  public boolean isEmpty() {
+    return _requests.isEmpty();
+  }
+
+  /** @return false if backlog is full. */
+  boolean add(ZmqFrames route, byte[] payload) {
+    if (_replaying) {
+      // request being replayed is deferred again: it keeps its place (and doesn't count against capacity).
+      _requests.addFirst(_head);
+      return true;
+    }
+    if (_requests.size() >= capacity) {
+      return false;
+    }
+    _requests.addLast(new Request(new ZmqFrames(route), payload));
+    return true;
+  }
+
+  /**
+   * Replays requests from the head while {@code processor} keeps routing them (i.e. doesn't defer them again).
+   *
+   * @return number of replayed requests.
+   */
+  int replay(Processor processor) throws Exception {
+    int replayed = 0;
+    while (!_requests.isEmpty()) {
+      _head = _requests.pollFirst();
+      _replaying = true;
+      int size = _requests.size();
+      try {
+        processor.set(_head.route).set(_head.payload).onRoot();
+      }
+      finally {
+        _replaying = false;
+        _head = null;
+      }
+      if (_requests.size() > size) {
+        break; // deferred again.
+      }
+      replayed++;
+    }
+    return replayed;
+  }
+}
@@ -0,0 +1,176 @@
+package org.zeromq.messaging.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Consistent hashing {@link Routing}: requests with the same key (root identity by default, see {@link KeyExtractor})
+ * land on the same peer, and peer join/leave remaps only ~{@code 1/N} of keys.
+ * <p/>
+ * Every peer is put on hash ring as {@code virtualNodes} points, request goes to the first point clockwise
+ * from hash of its key. Hash is 64-bit FNV-1a (with final avalanche mix). Ring is immutable sorted
+ * {@code long[]} (binary search on {@link #get(byte[], byte[])}, no allocation) which is rebuilt and swapped on
+ * {@link #put(byte[], byte[])} of new peer and on {@link #remove(byte[])}.
+ */
+public final class ConsistentHashRouting implements Routing, Evictable {
+
+  private static final int DEFAULT_VIRTUAL_NODES = 160;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private static final class Ring {
+
+    final byte[][] peers;
+    /** Sorted hashes of virtual nodes. */
+    final long[] points;
+    /** Owner of every point, index in {@link #peers}. */
+    final int[] owners;
+
+    Ring(byte[][] peers, long[] points, int[] owners) {
+      this.peers = peers;
+      this.points = points;
+      this.owners = owners;
+    }
+  }
+
+  private final int virtualNodes;
+  private final KeyExtractor keyExtractor;
+
+  private volatile Ring _ring = new Ring(new byte[0][], new long[0], new int[0]);
+
+  //// CONSTRUCTORS
+
+  public ConsistentHashRouting() {
+    this(DEFAULT_VIRTUAL_NODES, KeyExtractor.ROOT);
+  }
+
+  public ConsistentHashRouting(int virtualNodes, KeyExtractor keyExtractor) {
+    checkArgument(virtualNodes > 0, "Wrong virtualNodes=" + virtualNodes);
+    checkArgument(keyExtractor != null);
+    this.virtualNodes = virtualNodes;
+    this.keyExtractor = keyExtractor;
+  }
+
+  //// METHODS
+
+  @Override
+  public void put(byte[] identity, byte[] payload) {
+    if (indexOf(_ring.peers, identity) >= 0) {
+      return;
+    }
+    synchronized (this) {
+      byte[][] peers = _ring.peers;
+      if (indexOf(peers, identity) < 0) {
+        byte[][] copy = Arrays.copyOf(peers, peers.length + 1);
+        copy[peers.length] = identity;
+        _ring = build(copy);
+      }
+    }
+  }
+
+  /**
+   * @param identity root identity of request.
+   * @return peer owning request key, or null if there're no peers.
+   */
+  @Override
+  public byte[] get(byte[] identity, byte[] payload) {
+    Ring ring = _ring;
+    if (ring.points.length == 0) {
+      return null;
+    }
+    long hash = hash(keyExtractor.key(identity, payload));
+    int i = Arrays.binarySearch(ring.points, hash);
+    if (i < 0) {
+      i = -i - 1;
+      if (i == ring.points.length) {
+        i = 0; // wrap around the ring.
+      }
+    }
+    return ring.peers[ring.owners[i]];
+  }
+
+  @Override
+  public synchronized void remove(byte[] identity) {
+    byte[][] peers = _ring.peers;
+    int i = indexOf(peers, identity);
+    if (i < 0) {
+      return;
+    }
+    byte[][] copy = new byte[peers.length - 1][];
+    System.arraycopy(peers, 0, copy, 0, i);
+    System.arraycopy(peers, i + 1, copy, i, peers.length - i - 1);
+    _ring = build(copy);
+  }
+
+  @Override
+  public int available() {
+    return _ring.peers.length;
+  }
+
+  private Ring build(byte[][] peers) {
+    int n = peers.length * virtualNodes;
+    final long[] hashes = new long[n];
+    // virtual node k belongs to peer k / virtualNodes, sort virtual nodes by hash.
+    Integer[] order = new Integer[n];
+    for (int p = 0, k = 0; p < peers.length; p++) {
+      for (int v = 0; v < virtualNodes; v++, k++) {
+        hashes[k] = vnodeHash(peers[p], v);
+        order[k] = k;
+      }
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Long.compare(hashes[a], hashes[b]);
+      }
+    });
+    long[] points = new long[n];
+    int[] owners = new int[n];
+    for (int i = 0; i < n; i++) {
+      points[i] = hashes[order[i]];
+      owners[i] = order[i] / virtualNodes;
+    }
+    return new Ring(peers, points, owners);
+  }
+
+  private static long vnodeHash(byte[] identity, int vnode) {
+    long h = FNV_OFFSET_BASIS;
+    for (byte b : identity) {
+      h = (h ^ (b & 0xff)) * FNV_PRIME;
+    }
+    for (int shift = 0; shift < 32; shift += 8) {
+      h = (h ^ ((vnode >>> shift) & 0xff)) * FNV_PRIME;
+    }
+    return mix(h);
+  }
+
+  private static long hash(byte[] key) {
+    long h = FNV_OFFSET_BASIS;
+    for (byte b : key) {
+      h = (h ^ (b & 0xff)) * FNV_PRIME;
+    }
+    return mix(h);
+  }
+
+  /** Final avalanche (from MurmurHash3 fmix64): FNV alone spreads short similar keys poorly. */
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static int indexOf(byte[][] peers, byte[] identity) {
+    for (int i = 0; i < peers.length; i++) {
+      if (Arrays.equals(peers[i], identity)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,142 @@
+package org.zeromq.messaging.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.zeromq.support.ZmqUtils.makeHash;
+
+/**
+ * Credit based {@link Routing}: every slave grants credit window in heartbeat attributes of its PING
+ * (see {@link Heartbeat}), request consumes one credit of the slave it's sent to, reply gives it back (see {@link ReplyAware}).
+ * Only slaves with credit are picked (round robin), {@link #available()} counts them. So when slaves
+ * fall behind {@link AbstractProcessor#nextSlaveRoute()} returns null and master keeps requests in its
+ * {@link Backlog} (see {@link AbstractProcessor#defer()}) instead of overflowing slaves' queues.
+ * <p/>
+ * Reply gives credit back to the slave which sent it: slave {@link Worker} stamps its replies with its identity.
+ * Credits of lost replies aren't given back until slave is evicted and PINGs again.
+ * <p/>
+ * <b>NOTE: not thread safe, must be used by single {@link Worker}.</b>
+ */
+public final class CreditRouting implements Routing, ReplyAware, Evictable {
+
+  private static final int DEFAULT_CREDIT = 16;
+
+  private static final class Peer {
+
+    final byte[] identity;
+    int window;
+    int outstanding;
+
+    Peer(byte[] identity) {
+      this.identity = identity;
+    }
+
+    boolean hasCredit() {
+      return outstanding < window;
+    }
+  }
+
+  private final int defaultCredit;
+
+  private final List<Peer> _peers = new ArrayList<Peer>();
+  private final Map<Long, Peer> _peersByHash = new HashMap<Long, Peer>();
+  /** Number of peers having credit. */
+  private int _ready;
+  private int _cursor;
+
+  //// CONSTRUCTORS
+
+  public CreditRouting() {
+    this(DEFAULT_CREDIT);
+  }
+
+  /** @param defaultCredit window of slaves which don't grant credit in PING. */
+  public CreditRouting(int defaultCredit) {
+    checkArgument(defaultCredit > 0, "Wrong defaultCredit=" + defaultCredit);
+    this.defaultCredit = defaultCredit;
+  }
+
+  //// METHODS
+
+  /** @param payload heartbeat attributes, credit window is taken from them. */
+  @Override
+  public void put(byte[] identity, byte[] payload) {
+    long hash = makeHash(identity);
+    Peer peer = _peersByHash.get(hash);
+    if (peer == null) {
+      peer = new Peer(identity);
+      _peersByHash.put(hash, peer);
+      _peers.add(peer);
+    }
+    int credit = Heartbeat.credit(payload);
+    update(peer, peer.outstanding, credit > 0 ? credit : defaultCredit);
+  }
+
+  /**
+   * Picks the next slave having credit and takes one credit of it.
+   *
+   * @param identity root identity of request.
+   * @return slave or null if no slave has credit.
+   */
+  @Override
+  public byte[] get(byte[] identity, byte[] payload) {
+    if (_ready == 0) {
+      return null;
+    }
+    int size = _peers.size();
+    for (int i = 0; i < size; i++) {
+      Peer peer = _peers.get((_cursor++ & Integer.MAX_VALUE) % size);
+      if (peer.hasCredit()) {
+        update(peer, peer.outstanding + 1, peer.window);
+        return peer.identity;
+      }
+    }
+    return null;
+  }
+
+  /** @param identity slave which replied, its credit is given back. */
+  @Override
+  public void onReply(byte[] identity, byte[] payload) {
+    Peer peer = _peersByHash.get(makeHash(identity));
+    if (peer != null && peer.outstanding > 0) {
+      update(peer, peer.outstanding - 1, peer.window);
+    }
+  }
+
+  @Override
+  public void remove(byte[] identity) {
+    Peer peer = _peersByHash.remove(makeHash(identity));
+    if (peer != null) {
+      if (peer.hasCredit()) {
+        _ready--;
+      }
+      _peers.remove(peer);
+    }
+  }
+
+  /** @return number of slaves having credit. */
+  @Override
+  public int available() {
+    return _ready;
+  }
+
+  /** @return credit left of given slave, -1 if slave is unknown. */
+  public int credit(byte[] identity) {
+    Peer peer = _peersByHash.get(makeHash(identity));
+    return peer != null ? Math.max(peer.window - peer.outstanding, 0) : -1;
+  }
+
+  /** Updates peer keeping {@link #_ready} in sync. */
+  private void update(Peer peer, int outstanding, int window) {
+    boolean before = peer.hasCredit();
+    peer.outstanding = outstanding;
+    peer.window = window;
+    boolean after = peer.hasCredit();
+    if (before != after) {
+      _ready += after ? 1 : -1;
+    }
+  }
+}
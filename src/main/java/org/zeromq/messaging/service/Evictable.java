@@ -0,0 +1,11 @@
+package org.zeromq.messaging.service;
+
+/**
+ * {@link Routing} which can forget peer, e.g. when it's considered dead by {@link Worker} heartbeating.
+ * Peers of routing which isn't evictable stay in it until they're replaced by routing itself.
+ */
+public interface Evictable {
+
+  /** Removes peer, unknown peer is ignored. */
+  void remove(byte[] identity);
+}
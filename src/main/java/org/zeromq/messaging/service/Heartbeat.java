@@ -0,0 +1,124 @@
+package org.zeromq.messaging.service;
+
+import org.zeromq.messaging.ZmqChannel;
+import org.zeromq.messaging.ZmqFrames;
+import org.zeromq.messaging.ZmqPooledFrames;
+
+/**
+ * Attributes of {@link Worker} heartbeat: {@code key=value[;key=value]*}. Known keys:
+ * <ul>
+ * <li>{@code tier} -- transport slave is connected over, see {@link Tier} and {@link LocalityRouting}</li>
+ * <li>{@code credit} -- how many requests slave is ready to have in flight, see {@link CreditRouting}</li>
+ * </ul>
+ * PING payload stays plain {@code ping}, attributes travel as trailer of its frame (see
+ * {@link ZmqChannel#route(ZmqFrames, byte[], byte[], int)}), so masters which don't know about them
+ * see ordinary PING. Master gets attributes with {@link ZmqPooledFrames#getTrailer()}, PING w/o trailer
+ * has no attributes.
+ */
+public final class Heartbeat {
+
+  /** Transport tier between two peers, from the cheapest to the most expensive. */
+  public static enum Tier {
+    /** {@code inproc://} */
+    INPROC,
+    /** {@code ipc://} */
+    IPC,
+    /** {@code tcp://} and anything else, or transport is unknown. */
+    TCP
+  }
+
+  private static final String TIER_KEY = "tier=";
+  private static final String CREDIT_KEY = "credit=";
+
+  //// CONSTRUCTORS
+
+  private Heartbeat() {
+  }
+
+  //// METHODS
+
+  /** @return attributes carrying given tier. */
+  public static byte[] attributes(Tier tier) {
+    return attributes(tier, 0);
+  }
+
+  /**
+   * @param credit slave's credit window, not sent if it's not positive.
+   * @return attributes carrying given tier and credit.
+   */
+  public static byte[] attributes(Tier tier, int credit) {
+    String attributes = TIER_KEY + tier.name().toLowerCase();
+    if (credit > 0) {
+      attributes += ";" + CREDIT_KEY + credit;
+    }
+    return attributes.getBytes();
+  }
+
+  /** @return tier of given address by its scheme: {@code inproc://}, {@code ipc://}, {@code tcp://}. */
+  public static Tier tier(String address) {
+    if (address.startsWith("inproc://")) {
+      return Tier.INPROC;
+    }
+    if (address.startsWith("ipc://")) {
+      return Tier.IPC;
+    }
+    return Tier.TCP;
+  }
+
+  /**
+   * PING doesn't tell which of connections it goes over, so slave connected to several addresses
+   * advertises the most expensive of their tiers.
+   *
+   * @return tier of given connect addresses, {@link Tier#TCP} if there're none.
+   */
+  public static Tier tier(Iterable<String> addresses) {
+    Tier tier = null;
+    for (String address : addresses) {
+      Tier t = tier(address);
+      if (tier == null || t.compareTo(tier) > 0) {
+        tier = t;
+      }
+    }
+    return tier != null ? tier : Tier.TCP;
+  }
+
+  /** @return tier carried by attributes, {@link Tier#TCP} if there's none. */
+  public static Tier tier(byte[] attributes) {
+    String tier = value(attributes, TIER_KEY);
+    if (tier == null) {
+      return Tier.TCP;
+    }
+    try {
+      return Tier.valueOf(tier.toUpperCase());
+    }
+    catch (IllegalArgumentException e) {
+      return Tier.TCP;
+    }
+  }
+
+  /** @return credit window carried by attributes, or 0 if there's none. */
+  public static int credit(byte[] attributes) {
+    String credit = value(attributes, CREDIT_KEY);
+    if (credit == null) {
+      return 0;
+    }
+    try {
+      return Math.max(Integer.parseInt(credit), 0);
+    }
+    catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static String value(byte[] attributes, String key) {
+    if (attributes == null) {
+      return null;
+    }
+    for (String token : new String(attributes).split(";")) {
+      if (token.startsWith(key)) {
+        return token.substring(key.length());
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,20 @@
+package org.zeromq.messaging.service;
+
+/** Extracts routing key from request, see {@link ConsistentHashRouting}. */
+public interface KeyExtractor {
+
+  /** Routes by root identity, i.e. by client. */
+  KeyExtractor ROOT = new KeyExtractor() {
+    @Override
+    public byte[] key(byte[] root, byte[] payload) {
+      return root;
+    }
+  };
+
+  /**
+   * @param root    root identity of request, see {@link AbstractProcessor#root()}.
+   * @param payload request payload.
+   * @return routing key, not null.
+   */
+  byte[] key(byte[] root, byte[] payload);
+}
@@ -0,0 +1,189 @@
+package org.zeromq.messaging.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.zeromq.support.ZmqUtils.makeHash;
+
+/**
+ * {@link Routing} which sends request to the least loaded peer: one with the lowest
+ * {@code latency * (outstanding + 1)}, where {@code outstanding} is number of requests sent and not replied yet,
+ * and {@code latency} is EWMA of reply time (peers w/o latency yet are compared by {@code outstanding}).
+ * Small peer sets are scanned fully, large ones are sampled with "power of two choices" (two random peers,
+ * the better one wins).
+ * <p/>
+ * Reply is accounted on the peer which sent it (see {@link ReplyAware}), its latency is measured from the oldest
+ * request outstanding on that peer.
+ * <p/>
+ * <b>NOTE: not thread safe, must be used by single {@link Worker}. Lost replies are forgotten after
+ * {@code inflightTimeout}, the next time the same peer is picked or replies.</b>
+ */
+public final class LeastOutstandingRouting implements Routing, ReplyAware, Evictable {
+
+  static final int DEFAULT_FULL_SCAN_THRESHOLD = 8;
+  private static final long DEFAULT_INFLIGHT_TIMEOUT = 30000;
+  private static final double ALPHA = 0.2; // EWMA smoothing factor, best guess.
+
+  private static final class Peer {
+
+    final byte[] identity;
+    /** Send times of outstanding requests, the oldest first. */
+    final ArrayDeque<Long> inflight = new ArrayDeque<Long>();
+    double latencyNanos;
+
+    Peer(byte[] identity) {
+      this.identity = identity;
+    }
+
+    /** Forgets requests which weren't replied for {@code timeoutNanos}. */
+    void expire(long now, long timeoutNanos) {
+      Long oldest;
+      while ((oldest = inflight.peekFirst()) != null && now - oldest > timeoutNanos) {
+        inflight.pollFirst();
+      }
+    }
+
+    int outstanding() {
+      return inflight.size();
+    }
+
+    /** @return true if this peer is less loaded than the other one. */
+    boolean isBetter(Peer other) {
+      int outstanding = outstanding();
+      int otherOutstanding = other.outstanding();
+      if (latencyNanos == 0 || other.latencyNanos == 0) {
+        // latency of (at least) one of them is unknown yet: compare by outstanding, on tie give a try to
+        // peer w/o latency.
+        if (outstanding != otherOutstanding) {
+          return outstanding < otherOutstanding;
+        }
+        return latencyNanos == 0 && other.latencyNanos != 0;
+      }
+      return latencyNanos * (outstanding + 1) < other.latencyNanos * (otherOutstanding + 1);
+    }
+  }
+
+  private final int fullScanThreshold;
+  private final long inflightTimeoutNanos;
+
+  private final List<Peer> _peers = new ArrayList<Peer>();
+  private final Map<Long, Peer> _peersByHash = new HashMap<Long, Peer>();
+
+  //// CONSTRUCTORS
+
+  public LeastOutstandingRouting() {
+    this(DEFAULT_FULL_SCAN_THRESHOLD, DEFAULT_INFLIGHT_TIMEOUT);
+  }
+
+  /**
+   * @param fullScanThreshold peer sets up to this size are scanned fully, larger ones are sampled.
+   * @param inflightTimeout   millis after which unreplied request isn't counted as outstanding.
+   */
+  public LeastOutstandingRouting(int fullScanThreshold, long inflightTimeout) {
+    checkArgument(fullScanThreshold >= 2, "Wrong fullScanThreshold=" + fullScanThreshold);
+    checkArgument(inflightTimeout > 0, "Wrong inflightTimeout=" + inflightTimeout);
+    this.fullScanThreshold = fullScanThreshold;
+    this.inflightTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(inflightTimeout);
+  }
+
+  //// METHODS
+
+  @Override
+  public void put(byte[] identity, byte[] payload) {
+    long hash = makeHash(identity);
+    if (!_peersByHash.containsKey(hash)) {
+      Peer peer = new Peer(identity);
+      _peersByHash.put(hash, peer);
+      _peers.add(peer);
+    }
+  }
+
+  /**
+   * Picks the least loaded peer and counts request as outstanding on it.
+   *
+   * @param identity root identity of request.
+   */
+  @Override
+  public byte[] get(byte[] identity, byte[] payload) {
+    int size = _peers.size();
+    if (size == 0) {
+      return null;
+    }
+    Peer best;
+    if (size <= fullScanThreshold) {
+      best = _peers.get(0);
+      for (int i = 1; i < size; i++) {
+        Peer peer = _peers.get(i);
+        if (peer.isBetter(best)) {
+          best = peer;
+        }
+      }
+    }
+    else {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int i = random.nextInt(size);
+      int j = random.nextInt(size - 1);
+      Peer a = _peers.get(i);
+      Peer b = _peers.get(j < i ? j : j + 1);
+      best = b.isBetter(a) ? b : a;
+    }
+    long now = System.nanoTime();
+    best.expire(now, inflightTimeoutNanos);
+    best.inflight.addLast(now);
+    return best.identity;
+  }
+
+  /** @param identity peer which replied. */
+  @Override
+  public void onReply(byte[] identity, byte[] payload) {
+    Peer peer = _peersByHash.get(makeHash(identity));
+    if (peer == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    peer.expire(now, inflightTimeoutNanos);
+    Long startNanos = peer.inflight.pollFirst();
+    if (startNanos == null) {
+      return;
+    }
+    long latency = now - startNanos;
+    peer.latencyNanos = peer.latencyNanos == 0 ? latency : peer.latencyNanos + ALPHA * (latency - peer.latencyNanos);
+  }
+
+  @Override
+  public void remove(byte[] identity) {
+    Peer peer = _peersByHash.remove(makeHash(identity));
+    if (peer != null) {
+      _peers.remove(peer);
+    }
+  }
+
+  @Override
+  public int available() {
+    return _peers.size();
+  }
+
+  /** @return the lowest number of outstanding requests among peers, 0 if there're no peers. */
+  public int minOutstanding() {
+    if (_peers.isEmpty()) {
+      return 0;
+    }
+    int min = Integer.MAX_VALUE;
+    for (Peer peer : _peers) {
+      min = Math.min(min, peer.outstanding());
+    }
+    return min;
+  }
+
+  /** @return outstanding requests of given peer, -1 if peer is unknown. */
+  public int outstanding(byte[] identity) {
+    Peer peer = _peersByHash.get(makeHash(identity));
+    return peer != null ? peer.outstanding() : -1;
+  }
+}
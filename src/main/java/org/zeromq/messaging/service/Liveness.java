@@ -0,0 +1,60 @@
+package org.zeromq.messaging.service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.zeromq.support.ZmqUtils.makeHash;
+
+/**
+ * Tracks when peers were heard of last time and evicts silent ones from {@link Routing}.
+ * Used by {@link Worker} heartbeating, not thread safe.
+ */
+final class Liveness {
+
+  private static final class Peer {
+
+    final byte[] identity;
+    long lastSeen;
+
+    Peer(byte[] identity) {
+      this.identity = identity;
+    }
+  }
+
+  private final Map<Long, Peer> _peers = new HashMap<Long, Peer>();
+
+  //// METHODS
+
+  /** Records that peer is alive. */
+  void touch(byte[] identity, long now) {
+    long hash = makeHash(identity);
+    Peer peer = _peers.get(hash);
+    if (peer == null) {
+      _peers.put(hash, peer = new Peer(identity));
+    }
+    peer.lastSeen = now;
+  }
+
+  /**
+   * Removes peers which weren't heard of since {@code expiry} from liveness table and from routing
+   * (if it's {@link Evictable}).
+   *
+   * @return number of evicted peers.
+   */
+  int evict(long expiry, Routing routing) {
+    int evicted = 0;
+    Iterator<Peer> iter = _peers.values().iterator();
+    while (iter.hasNext()) {
+      Peer peer = iter.next();
+      if (peer.lastSeen < expiry) {
+        iter.remove();
+        if (routing instanceof Evictable) {
+          ((Evictable) routing).remove(peer.identity);
+        }
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+}
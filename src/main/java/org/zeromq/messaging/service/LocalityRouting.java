@@ -0,0 +1,114 @@
+package org.zeromq.messaging.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.zeromq.support.ZmqUtils.makeHash;
+
+/**
+ * Locality aware {@link Routing}: prefers peers of the cheapest {@link Heartbeat.Tier} ({@code inproc://}, then
+ * {@code ipc://}, then {@code tcp://}), and spills to farther tier only when every peer of nearer tiers has at least
+ * {@code maxOutstanding} requests in flight.
+ * <p/>
+ * Tier of peer is learned from heartbeat attributes carried by its PING (see {@link Heartbeat}), peers w/o tier
+ * are {@link Heartbeat.Tier#TCP}. Within tier requests go to the least loaded peer, see
+ * {@link LeastOutstandingRouting}, reply is accounted in the tier of the peer which sent it (see {@link ReplyAware}).
+ * <p/>
+ * <b>NOTE: not thread safe, must be used by single {@link Worker}.</b>
+ */
+public final class LocalityRouting implements Routing, ReplyAware, Evictable {
+
+  private static final int DEFAULT_MAX_OUTSTANDING = 64;
+  private static final long DEFAULT_INFLIGHT_TIMEOUT = 30000;
+
+  private final int maxOutstanding;
+
+  private final LeastOutstandingRouting[] _tiers = new LeastOutstandingRouting[Heartbeat.Tier.values().length];
+  private final Map<Long, Integer> _peerTiers = new HashMap<Long, Integer>();
+
+  //// CONSTRUCTORS
+
+  public LocalityRouting() {
+    this(DEFAULT_MAX_OUTSTANDING, DEFAULT_INFLIGHT_TIMEOUT);
+  }
+
+  /**
+   * @param maxOutstanding  requests in flight per peer after which tier is considered saturated.
+   * @param inflightTimeout millis after which unreplied request isn't counted as outstanding.
+   */
+  public LocalityRouting(int maxOutstanding, long inflightTimeout) {
+    checkArgument(maxOutstanding > 0, "Wrong maxOutstanding=" + maxOutstanding);
+    checkArgument(inflightTimeout > 0, "Wrong inflightTimeout=" + inflightTimeout);
+    this.maxOutstanding = maxOutstanding;
+    for (int i = 0; i < _tiers.length; i++) {
+      _tiers[i] = new LeastOutstandingRouting(LeastOutstandingRouting.DEFAULT_FULL_SCAN_THRESHOLD, inflightTimeout);
+    }
+  }
+
+  //// METHODS
+
+  /** @param payload heartbeat attributes, see {@link Heartbeat}. */
+  @Override
+  public void put(byte[] identity, byte[] payload) {
+    int tier = Heartbeat.tier(payload).ordinal();
+    Integer current = _peerTiers.put(makeHash(identity), tier);
+    if (current != null && current != tier) {
+      _tiers[current].remove(identity);
+    }
+    _tiers[tier].put(identity, payload);
+  }
+
+  /** @param identity root identity of request. */
+  @Override
+  public byte[] get(byte[] identity, byte[] payload) {
+    int tier = -1;
+    for (int i = 0; i < _tiers.length; i++) {
+      if (_tiers[i].available() == 0) {
+        continue;
+      }
+      if (tier < 0) {
+        tier = i; // the nearest non-empty tier takes overflow when all tiers are saturated.
+      }
+      if (_tiers[i].minOutstanding() < maxOutstanding) {
+        tier = i;
+        break;
+      }
+    }
+    if (tier < 0) {
+      return null;
+    }
+    return _tiers[tier].get(identity, payload);
+  }
+
+  /** @param identity peer which replied. */
+  @Override
+  public void onReply(byte[] identity, byte[] payload) {
+    Integer tier = _peerTiers.get(makeHash(identity));
+    if (tier != null) {
+      _tiers[tier].onReply(identity, payload);
+    }
+  }
+
+  @Override
+  public void remove(byte[] identity) {
+    Integer tier = _peerTiers.remove(makeHash(identity));
+    if (tier != null) {
+      _tiers[tier].remove(identity);
+    }
+  }
+
+  @Override
+  public int available() {
+    int available = 0;
+    for (LeastOutstandingRouting tier : _tiers) {
+      available += tier.available();
+    }
+    return available;
+  }
+
+  /** @return number of peers in given tier. */
+  public int available(Heartbeat.Tier tier) {
+    return _tiers[tier.ordinal()].available();
+  }
+}
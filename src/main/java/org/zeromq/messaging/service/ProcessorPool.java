@@ -0,0 +1,264 @@
+package org.zeromq.messaging.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.messaging.ZmqChannel;
+import org.zeromq.messaging.ZmqFrames;
+import org.zeromq.support.ObjectBuilder;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.zeromq.support.ZmqUtils.makeHash;
+
+/**
+ * Runs {@link Processor}-s off {@link Worker}'s socket thread: every pool thread has its own processor
+ * (built by {@code processors}), socket thread only hands decoded messages over. Processors don't touch
+ * sockets, their {@link AbstractProcessor#route()} and {@link AbstractProcessor#defer()} go back to socket
+ * thread through {@link Worker}'s mailbox (see {@link org.zeromq.messaging.ZmqAbstractActor#execute(Runnable)}).
+ * <p/>
+ * Two modes:
+ * <ul>
+ * <li><b>shared queue</b> (w/o {@code keyExtractor}): any thread takes any message, order isn't kept. When queue
+ * is full message is processed right on socket thread, i.e. worker slows down instead of piling up requests</li>
+ * <li><b>lanes</b> (with {@code keyExtractor}): every thread is a lane with its own queue, message goes to lane
+ * by hash of its key (see {@link KeyExtractor#ROOT}), so messages with the same key are processed in order and
+ * different keys are processed in parallel. When lane is full socket thread waits for it, which keeps
+ * the order</li>
+ * </ul>
+ * <b>NOTE: requests replayed from {@link Backlog} are processed on socket thread, see {@link #local()}.</b>
+ */
+final class ProcessorPool {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProcessorPool.class);
+
+  static final int DEFAULT_QUEUE_CAPACITY = 1024;
+  private static final long SHUTDOWN_TIMEOUT = 1000;
+
+  /** Lane is full: wait for room rather than run in place, which would break the order of the lane. */
+  private static final RejectedExecutionHandler WAIT_FOR_LANE = new RejectedExecutionHandler() {
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+      if (executor.isShutdown()) {
+        throw new RejectedExecutionException("Lane is shut down!");
+      }
+      try {
+        executor.getQueue().put(task);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RejectedExecutionException(e);
+      }
+    }
+  };
+
+  static enum Event {
+    ROOT, MASTER, SLAVE
+  }
+
+  private final ObjectBuilder<? extends Processor> processors;
+  private final int threadNum;
+  private final int queueCapacity;
+  /** Lane key, null for shared queue. */
+  private final KeyExtractor keyExtractor;
+
+  /** Single executor of all threads (shared queue), or single-thread executor per lane. */
+  private ThreadPoolExecutor[] _executors;
+  /** Processor of every pool thread. */
+  private ThreadLocal<Processor> _processor;
+  /** Processor of socket thread: for messages processed in place (queue is full, replay of {@link Backlog}). */
+  private Processor _local;
+  private Thread _socketThread;
+  /** Messages handed over and not processed yet. */
+  private final AtomicInteger _pending = new AtomicInteger();
+
+  //// CONSTRUCTORS
+
+  ProcessorPool(ObjectBuilder<? extends Processor> processors, int threadNum, int queueCapacity) {
+    this(processors, threadNum, queueCapacity, null);
+  }
+
+  /**
+   * @param threadNum     number of threads, i.e. lanes if {@code keyExtractor} is given.
+   * @param queueCapacity capacity of shared queue, or of every lane.
+   * @param keyExtractor  lane key, null for shared queue.
+   */
+  ProcessorPool(ObjectBuilder<? extends Processor> processors,
+                int threadNum,
+                int queueCapacity,
+                KeyExtractor keyExtractor) {
+    checkArgument(processors != null);
+    checkArgument(threadNum > 0, "Wrong threadNum=" + threadNum);
+    checkArgument(queueCapacity > 0, "Wrong queueCapacity=" + queueCapacity);
+    this.processors = processors;
+    this.threadNum = threadNum;
+    this.queueCapacity = queueCapacity;
+    this.keyExtractor = keyExtractor;
+  }
+
+  //// METHODS
+
+  /**
+   * Starts threads, must be called on socket thread. Processors get {@code router}, {@code routings},
+   * {@code identities}, {@code backlog} and {@code worker} itself, and worker's mailbox as {@code executor}
+   * (except {@link #local()} one, which works in place).
+   *
+   * @param threadNameFormat see {@link ThreadFactoryBuilder#setNameFormat(String)}.
+   */
+  void init(final ZmqChannel router,
+            final Routing[] routings,
+            final Object[] identities,
+            final Backlog backlog,
+            final Executor executor,
+            final Worker worker,
+            String threadNameFormat) {
+    checkState(_executors == null, "Pool is initialized already!");
+    _socketThread = Thread.currentThread();
+    _local = build(router, routings, identities, backlog, null, worker);
+    _processor = new ThreadLocal<Processor>() {
+      @Override
+      protected Processor initialValue() {
+        return Thread.currentThread() == _socketThread
+               ? _local
+               : build(router, routings, identities, backlog, executor, worker);
+      }
+    };
+    ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat(threadNameFormat).build();
+    if (keyExtractor == null) {
+      _executors = new ThreadPoolExecutor[]{
+          newExecutor(threadNum, threadFactory, new ThreadPoolExecutor.CallerRunsPolicy())
+      };
+    }
+    else {
+      _executors = new ThreadPoolExecutor[threadNum];
+      for (int i = 0; i < threadNum; i++) {
+        _executors[i] = newExecutor(1, threadFactory, WAIT_FOR_LANE);
+      }
+    }
+  }
+
+  /** Hands message over to pool thread. Route and payload must not be touched by caller afterwards. */
+  void submit(final Event event, final ZmqFrames route, final byte[] payload) {
+    checkState(_executors != null, "Pool isn't initialized!");
+    _pending.incrementAndGet();
+    try {
+      _executors[lane(route, payload)].execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            call(_processor.get().set(route).set(payload), event);
+          }
+          catch (Exception e) {
+            LOGGER.error("!!! Got: " + e + " at processor, event=" + event, e);
+          }
+          finally {
+            _pending.decrementAndGet();
+          }
+        }
+      });
+    }
+    catch (RuntimeException e) {
+      _pending.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /** @return processor of socket thread, it routes and defers in place. */
+  Processor local() {
+    checkState(_local != null, "Pool isn't initialized!");
+    return _local;
+  }
+
+  /** @return number of messages handed over and not processed yet. */
+  int pending() {
+    return _pending.get();
+  }
+
+  /** Stops threads, messages which haven't been processed are dropped. */
+  void destroy() {
+    if (_executors == null) {
+      return;
+    }
+    int dropped = 0;
+    for (ThreadPoolExecutor executor : _executors) {
+      dropped += executor.shutdownNow().size();
+    }
+    if (dropped > 0) {
+      LOGGER.warn("!!! Processor pool destroyed, " + dropped + " messages will be lost.");
+    }
+    try {
+      long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT;
+      for (ThreadPoolExecutor executor : _executors) {
+        long timeout = Math.max(deadline - System.currentTimeMillis(), 0);
+        if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+          LOGGER.error("!!! Processor threads didn't stop in time.");
+          break;
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    _executors = null;
+    _local = null;
+  }
+
+  /** @return index of executor for given message: lane by hash of the key, or the only (shared) one. */
+  int lane(ZmqFrames route, byte[] payload) {
+    if (keyExtractor == null || _executors.length == 1) {
+      return 0;
+    }
+    byte[] root = route.isEmpty() ? ZmqFrames.EMPTY_FRAME : route.get(route.size() - 1);
+    return (int) (makeHash(keyExtractor.key(root, payload)) % _executors.length);
+  }
+
+  private ThreadPoolExecutor newExecutor(int threadNum,
+                                         ThreadFactory threadFactory,
+                                         RejectedExecutionHandler rejectedHandler) {
+    return new ThreadPoolExecutor(threadNum,
+                                  threadNum,
+                                  0L,
+                                  TimeUnit.MILLISECONDS,
+                                  new LinkedBlockingQueue<Runnable>(queueCapacity),
+                                  threadFactory,
+                                  rejectedHandler);
+  }
+
+  private Processor build(ZmqChannel router,
+                          Routing[] routings,
+                          Object[] identities,
+                          Backlog backlog,
+                          Executor executor,
+                          Worker worker) {
+    Processor processor = processors.build();
+    checkState(processor instanceof AbstractProcessor, "Pooled processor must extend AbstractProcessor!");
+    processor.set(router).set(routings).set(identities);
+    AbstractProcessor.init(processor, backlog, executor, worker);
+    return processor;
+  }
+
+  static void call(Processor processor, Event event) throws Exception {
+    switch (event) {
+      case ROOT:
+        processor.onRoot();
+        break;
+      case MASTER:
+        processor.onMaster();
+        break;
+      case SLAVE:
+        processor.onSlave();
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported event=" + event);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package org.zeromq.messaging.service;
+
+import org.zeromq.messaging.ZmqFrames;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Deferred reply: route of the message being processed, captured by {@link AbstractProcessor#reply()}, so that
+ * processor can return right away and send reply later, e.g. when slow dependency (disk, another service) answers.
+ * <pre>
+ *   public void onRoot() {
+ *     final Reply reply = reply();
+ *     storage.readAsync(payload, new Callback() {
+ *       public void onDone(byte[] data) {
+ *         reply.complete(data); // any thread.
+ *       }
+ *     });
+ *   }
+ * </pre>
+ * Reply is sent by {@link Worker}'s socket thread: {@link #complete(byte[])} only hands it over through worker's
+ * mailbox, so one worker can keep thousands of requests in flight w/o blocking its loop.
+ */
+public final class Reply {
+
+  private final Worker worker;
+  private final ZmqFrames route;
+
+  private final AtomicBoolean _completed = new AtomicBoolean();
+
+  //// CONSTRUCTORS
+
+  Reply(Worker worker, ZmqFrames route) {
+    checkArgument(worker != null);
+    checkArgument(route != null);
+    this.worker = worker;
+    this.route = route;
+  }
+
+  //// METHODS
+
+  /**
+   * Sends {@code payload} along captured route. Can be called from any thread, only the first call counts.
+   *
+   * @return false if reply was completed already.
+   * @throws IllegalStateException if worker is destroyed already.
+   */
+  public boolean complete(byte[] payload) {
+    checkArgument(payload != null);
+    if (!_completed.compareAndSet(false, true)) {
+      return false;
+    }
+    worker.complete(route, payload);
+    return true;
+  }
+
+  public boolean isCompleted() {
+    return _completed.get();
+  }
+}
@@ -0,0 +1,18 @@
+package org.zeromq.messaging.service;
+
+/**
+ * {@link Routing} which wants to know about replies coming back from peers it routed to,
+ * e.g. to track outstanding requests. {@link Worker} calls it before {@link Processor#onSlave()}.
+ * <p/>
+ * Slave {@link Worker} stamps what it routes with its identity (as trailer of payload frame, see
+ * {@link org.zeromq.messaging.ZmqChannel#route(org.zeromq.messaging.ZmqFrames, byte[], byte[], int)}), so master
+ * knows which slave replied. Replies w/o stamp (e.g. from slaves of older version) aren't reported.
+ */
+public interface ReplyAware {
+
+  /**
+   * @param identity identity of the slave which replied, the same one {@link Routing#get(byte[], byte[])} returned.
+   * @param payload  reply payload.
+   */
+  void onReply(byte[] identity, byte[] payload);
+}
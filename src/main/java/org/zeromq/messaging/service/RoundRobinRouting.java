@@ -0,0 +1,73 @@
+package org.zeromq.messaging.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Round robin {@link Routing}.
+ * <p/>
+ * Peers are kept in copy-on-write array: {@link #get(byte[], byte[])} is lock-free and allocation-free
+ * (volatile read and atomic increment), {@link #put(byte[], byte[])} and {@link #remove(byte[])} copy
+ * the array, which is fine since membership changes are rare (heartbeats of known peers don't copy).
+ */
+public final class RoundRobinRouting implements Routing, Evictable {
+
+  private static final byte[][] EMPTY = new byte[0][];
+
+  private volatile byte[][] _peers = EMPTY;
+  private final AtomicInteger _counter = new AtomicInteger();
+
+  //// METHODS
+
+  @Override
+  public void put(byte[] identity, byte[] payload) {
+    if (indexOf(_peers, identity) >= 0) {
+      return;
+    }
+    synchronized (this) {
+      byte[][] peers = _peers;
+      if (indexOf(peers, identity) < 0) {
+        byte[][] copy = Arrays.copyOf(peers, peers.length + 1);
+        copy[peers.length] = identity;
+        _peers = copy;
+      }
+    }
+  }
+
+  /** @return next peer or null if there're no peers. */
+  @Override
+  public byte[] get(byte[] identity, byte[] payload) {
+    byte[][] peers = _peers;
+    if (peers.length == 0) {
+      return null;
+    }
+    return peers[(_counter.getAndIncrement() & Integer.MAX_VALUE) % peers.length];
+  }
+
+  @Override
+  public synchronized void remove(byte[] identity) {
+    byte[][] peers = _peers;
+    int i = indexOf(peers, identity);
+    if (i < 0) {
+      return;
+    }
+    byte[][] copy = new byte[peers.length - 1][];
+    System.arraycopy(peers, 0, copy, 0, i);
+    System.arraycopy(peers, i + 1, copy, i, peers.length - i - 1);
+    _peers = copy;
+  }
+
+  @Override
+  public int available() {
+    return _peers.length;
+  }
+
+  private static int indexOf(byte[][] peers, byte[] identity) {
+    for (int i = 0; i < peers.length; i++) {
+      if (Arrays.equals(peers[i], identity)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
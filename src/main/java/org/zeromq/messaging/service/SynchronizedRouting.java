@@ -0,0 +1,51 @@
+package org.zeromq.messaging.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Guards {@link Routing} with a lock, so that it can be shared by {@link Worker}'s socket thread and
+ * its {@link ProcessorPool} threads. Replies and evictions are passed on if wrapped routing is {@link ReplyAware}
+ * and {@link Evictable} respectively.
+ */
+final class SynchronizedRouting implements Routing, ReplyAware, Evictable {
+
+  private final Routing routing;
+
+  //// CONSTRUCTORS
+
+  SynchronizedRouting(Routing routing) {
+    checkArgument(routing != null);
+    this.routing = routing;
+  }
+
+  //// METHODS
+
+  @Override
+  public synchronized void put(byte[] identity, byte[] payload) {
+    routing.put(identity, payload);
+  }
+
+  @Override
+  public synchronized byte[] get(byte[] identity, byte[] payload) {
+    return routing.get(identity, payload);
+  }
+
+  @Override
+  public synchronized void remove(byte[] identity) {
+    if (routing instanceof Evictable) {
+      ((Evictable) routing).remove(identity);
+    }
+  }
+
+  @Override
+  public synchronized int available() {
+    return routing.available();
+  }
+
+  @Override
+  public synchronized void onReply(byte[] identity, byte[] payload) {
+    if (routing instanceof ReplyAware) {
+      ((ReplyAware) routing).onReply(identity, payload);
+    }
+  }
+}
@@ -5,10 +5,14 @@ import org.slf4j.LoggerFactory;
 import org.zeromq.messaging.Props;
 import org.zeromq.messaging.ZmqAbstractActor;
 import org.zeromq.messaging.ZmqChannel;
+import org.zeromq.messaging.ZmqChannelHandler;
 import org.zeromq.messaging.ZmqFrames;
+import org.zeromq.messaging.ZmqPooledFrames;
+import org.zeromq.messaging.ZmqTimerTask;
+import org.zeromq.support.ObjectBuilder;
 
-import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.zeromq.ZMQ.DONTWAIT;
@@ -21,6 +25,10 @@ public final class Worker extends ZmqAbstractActor {
   public static final byte[] PING = "ping".getBytes();
   public static final byte[] PONG = "pong".getBytes();
 
+  private static final long DEFAULT_HEARTBEAT_INTERVAL = 1000;
+  private static final int DEFAULT_HEARTBEAT_LIVENESS = 3;
+  private static final int DEFAULT_BACKLOG_CAPACITY = 1024;
+
   /**
    * Worker's outgoing traffic gateway. It can {@code bind} and/or {@code connect}, in either case
    * this socket is -- {@code ROUTER} with "routing table".
@@ -114,17 +122,90 @@ public final class Worker extends ZmqAbstractActor {
       _target.setProcessor(processor);
       return this;
     }
+
+    /**
+     * Processes messages on {@code threadNum} threads instead of socket thread, see {@link ProcessorPool}.
+     * Replaces {@link #with(Processor)}.
+     *
+     * @param processors builds processor for every thread (processors are stateful).
+     */
+    public Builder withProcessorPool(ObjectBuilder<? extends Processor> processors, int threadNum) {
+      _target.setProcessorPool(processors, threadNum);
+      return this;
+    }
+
+    /**
+     * Processes messages on {@code laneNum} single-threaded lanes: messages with the same key keep their order,
+     * different keys are processed in parallel. See {@link ProcessorPool}. Replaces {@link #with(Processor)}.
+     *
+     * @param processors   builds processor for every lane (processors are stateful).
+     * @param keyExtractor lane key, {@link KeyExtractor#ROOT} keeps order per client.
+     */
+    public Builder withProcessorLanes(ObjectBuilder<? extends Processor> processors,
+                                      int laneNum,
+                                      KeyExtractor keyExtractor) {
+      _target.setProcessorLanes(processors, laneNum, keyExtractor);
+      return this;
+    }
+
+    /** @param heartbeatInterval millis between PING-s sent by slave (and between dead peer checks). */
+    public Builder withHeartbeatInterval(long heartbeatInterval) {
+      _target.setHeartbeatInterval(heartbeatInterval);
+      return this;
+    }
+
+    /** @param heartbeatLiveness how many heartbeats peer may miss before it's evicted from routing. */
+    public Builder withHeartbeatLiveness(int heartbeatLiveness) {
+      _target.setHeartbeatLiveness(heartbeatLiveness);
+      return this;
+    }
+
+    /**
+     * @param credit how many requests slave is ready to have in flight, granted to masters in PING
+     *               (see {@link CreditRouting}). Not positive means slave doesn't grant credit.
+     */
+    public Builder withCredit(int credit) {
+      _target.setCredit(credit);
+      return this;
+    }
+
+    /** @param backlogCapacity max number of requests master keeps deferred, see {@link Backlog}. */
+    public Builder withBacklogCapacity(int backlogCapacity) {
+      _target.setBacklogCapacity(backlogCapacity);
+      return this;
+    }
   }
 
   private Props master;
   private Props slave;
   private Props router;
   private Processor processor;
+  private ProcessorPool processorPool;
+  private long heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
+  private int heartbeatLiveness = DEFAULT_HEARTBEAT_LIVENESS;
+  private int credit;
+  private int backlogCapacity = DEFAULT_BACKLOG_CAPACITY;
   /** 0 - master, 1 - slave */
   private Routing[] routings = new Routing[2];
   /** 0 - master, 1 - slave */
   private Object[] identities = new Object[2];
 
+  /**
+   * Reusable container for incoming traffic. PING/PONG are served right from it,
+   * payload and route are copied out only when message is handed to {@link #processor}.
+   */
+  private ZmqPooledFrames _frames;
+  private ZmqChannel _router;
+  private ZmqChannel _slave;
+  /** Master's deferred requests, see {@link AbstractProcessor#defer()}. */
+  private Backlog _backlog;
+  /** Heartbeat attributes of this slave, sent along with PING, see {@link Heartbeat}. */
+  private byte[] _heartbeat;
+  /** 0 - masters (seen by slave), 1 - slaves (seen by master) */
+  private Liveness[] _liveness = new Liveness[]{new Liveness(), new Liveness()};
+  /** Replies captured by {@link AbstractProcessor#reply()} and not completed yet. */
+  private final AtomicInteger _pendingReplies = new AtomicInteger();
+
   //// CONSTRUCTORS
 
   private Worker() {
@@ -160,6 +241,31 @@ public final class Worker extends ZmqAbstractActor {
     this.processor = processor;
   }
 
+  public void setProcessorPool(ObjectBuilder<? extends Processor> processors, int threadNum) {
+    this.processorPool = new ProcessorPool(processors, threadNum, ProcessorPool.DEFAULT_QUEUE_CAPACITY);
+  }
+
+  public void setProcessorLanes(ObjectBuilder<? extends Processor> processors, int laneNum, KeyExtractor keyExtractor) {
+    checkArgument(keyExtractor != null);
+    this.processorPool = new ProcessorPool(processors, laneNum, ProcessorPool.DEFAULT_QUEUE_CAPACITY, keyExtractor);
+  }
+
+  public void setHeartbeatInterval(long heartbeatInterval) {
+    this.heartbeatInterval = heartbeatInterval;
+  }
+
+  public void setHeartbeatLiveness(int heartbeatLiveness) {
+    this.heartbeatLiveness = heartbeatLiveness;
+  }
+
+  public void setCredit(int credit) {
+    this.credit = credit;
+  }
+
+  public void setBacklogCapacity(int backlogCapacity) {
+    this.backlogCapacity = backlogCapacity;
+  }
+
   @Override
   public void checkInvariant() {
     super.checkInvariant();
@@ -183,117 +289,261 @@ public final class Worker extends ZmqAbstractActor {
       checkArgument(!slave.connectAddr().isEmpty(), "Slave: connectAddr is required!");
       checkArgument(routings[0] != null, "Slave: masterRouting is required!");
     }
-    checkArgument(processor != null);
+    checkArgument(processor != null ^ processorPool != null, "Either processor or processorPool is required!");
+    checkArgument(heartbeatInterval > 0, "Wrong heartbeatInterval=" + heartbeatInterval);
+    checkArgument(heartbeatLiveness > 0, "Wrong heartbeatLiveness=" + heartbeatLiveness);
+    checkArgument(backlogCapacity > 0, "Wrong backlogCapacity=" + backlogCapacity);
   }
 
   @Override
   public void init() {
+    openMailbox(); // for deferred replies and processor pool.
+
+    // bounded frames are received into pooled ones w/o allocation, see ZmqChannel.recv(ZmqPooledFrames, int).
+    router = router.bounded();
+    if (master != null) {
+      master = master.bounded();
+    }
+    if (slave != null) {
+      slave = slave.bounded();
+    }
+
+    int maxFrameSize = router.payloadBufCapacity();
+    if (master != null) {
+      maxFrameSize = Math.max(maxFrameSize, master.payloadBufCapacity());
+    }
+    if (slave != null) {
+      maxFrameSize = Math.max(maxFrameSize, slave.payloadBufCapacity());
+    }
+    _frames = new ZmqPooledFrames(maxFrameSize);
+
     if (master != null) {
       if (master.identity() == null) {
         master = Props.builder(master).withIdentity(generateIdentity()).build();
       }
-      put(MASTER, ZmqChannel.DEALER(ctx).with(master).build()).watchRecv(_poller);
+      register(MASTER, ZmqChannel.DEALER(ctx).with(master).build(), new ZmqChannelHandler() {
+        @Override
+        public void onRecv(ZmqChannel channel) throws Exception {
+          onMasterRecv(channel);
+        }
+      });
       identities[0] = master.identity();
+      _backlog = new Backlog(backlogCapacity);
     }
     if (slave != null) {
       if (slave.identity() == null) {
         slave = Props.builder(slave).withIdentity(generateIdentity()).build();
       }
-      put(SLAVE, ZmqChannel.DEALER(ctx).with(slave).build()).watchRecv(_poller);
+      _slave = register(SLAVE, ZmqChannel.DEALER(ctx).with(slave).build(), new ZmqChannelHandler() {
+        @Override
+        public void onRecv(ZmqChannel channel) throws Exception {
+          onSlaveRecv(channel);
+        }
+      });
       identities[1] = slave.identity();
+      _heartbeat = Heartbeat.attributes(Heartbeat.tier(slave.connectAddr()), credit);
     }
     router = Props.builder(router).withRouterMandatory().build();
-    put(ROUTER, ZmqChannel.ROUTER(ctx).with(router).build()).watchRecv(_poller);
+    _router = register(ROUTER, ZmqChannel.ROUTER(ctx).with(router).build(), new ZmqChannelHandler() {
+      @Override
+      public void onRecv(ZmqChannel channel) throws Exception {
+        onRouterRecv(channel);
+      }
+    });
+    schedule(0, heartbeatInterval, new ZmqTimerTask() {
+      @Override
+      public void onTimer() throws Exception {
+        onHeartbeat();
+      }
+    });
+    if (processor != null) {
+      AbstractProcessor.init(processor, _backlog, null, this);
+    }
+    if (processorPool != null) {
+      // routings are shared with processor threads from now on.
+      for (int i = 0; i < routings.length; i++) {
+        if (routings[i] != null && !(routings[i] instanceof SynchronizedRouting)) {
+          routings[i] = new SynchronizedRouting(routings[i]);
+        }
+      }
+      processorPool.init(_router, routings, identities, _backlog, this, this, "zmq-processor-%d");
+    }
   }
 
+  /** Waits for processor threads and deferred replies: their results come back through mailbox. */
   @Override
-  public void exec() throws Exception {
-    poll();
-
-    ZmqChannel router = get(ROUTER);
-    ZmqChannel master = get(MASTER);
-    ZmqChannel slave = get(SLAVE);
-
-    if (router.canRecv()) {
-      for (; ; ) {
-        ZmqFrames frames = router.recv(DONTWAIT);
-        if (frames == null)
-          break;
-
-        byte[] payload = frames.getPayload();
-        ZmqFrames route = frames.getIdentities();
-        if (isPing(payload)) {
-          if (route.size() == 1) {
-            routings[1].put(route.get(0), payload);
-            {
-              // Send PONG back, use identities [route|master_identity].
-              ZmqFrames masterRoute = new ZmqFrames();
-              masterRoute.add(route.get(0));
-              masterRoute.add((byte[]) identities[0]);
-              router.route(masterRoute, PONG, DONTWAIT);
-              LOGGER.info("Got PING (slave.hash={}), send PONG back (master.hash={}).",
-                          makeHash(route.get(0)),
-                          makeHash((byte[]) identities[0]));
-            }
-          }
-          else {
-            LOGGER.error("Wrong PING! Got route.size={}.", route.size());
+  public boolean drain(long deadline) {
+    boolean busy = (_pendingReplies.get() > 0 || processorPool != null && processorPool.pending() > 0)
+                   && System.currentTimeMillis() < deadline;
+    return super.drain(deadline) && !busy;
+  }
+
+  @Override
+  public void destroy() {
+    if (processorPool != null) {
+      processorPool.destroy();
+    }
+    super.destroy();
+  }
+
+  /**
+   * Heartbeat timer:
+   * <ul>
+   * <li>slave sends PING to every master and evicts masters which didn't PONG back for {@link #heartbeatLiveness}
+   * intervals, so that traffic fails over to live masters</li>
+   * <li>master evicts slaves which didn't PING for {@link #heartbeatLiveness} intervals</li>
+   * </ul>
+   */
+  private void onHeartbeat() throws Exception {
+    long now = System.currentTimeMillis();
+    long expiry = now - heartbeatInterval * heartbeatLiveness;
+    if (_slave != null) {
+      for (String connectAddr : this.slave.connectAddr()) {
+        _slave.route(new ZmqFrames(), PING, _heartbeat, DONTWAIT);
+        LOGGER.debug("Send PING (slave.hash={}) on {}.", makeHash((byte[]) identities[1]), connectAddr);
+      }
+      int evicted = _liveness[0].evict(expiry, routings[0]);
+      if (evicted > 0) {
+        LOGGER.warn("Evicted {} dead masters (slave.hash={}).", evicted, makeHash((byte[]) identities[1]));
+      }
+    }
+    if (master != null) {
+      int evicted = _liveness[1].evict(expiry, routings[1]);
+      if (evicted > 0) {
+        LOGGER.warn("Evicted {} dead slaves (master.hash={}).", evicted, makeHash((byte[]) identities[0]));
+      }
+      if (!_backlog.isEmpty()) {
+        LOGGER.debug("Backlog (master.hash={}): {} requests.", makeHash((byte[]) identities[0]), _backlog.size());
+      }
+      replayBacklog();
+    }
+  }
+
+  /** Replays deferred requests while slaves can take them (e.g. have credit). */
+  private void replayBacklog() throws Exception {
+    if (_backlog == null || _backlog.isEmpty() || routings[1].available() == 0) {
+      return;
+    }
+    // with processor pool requests are replayed in place: backlog has to know whether request got deferred again.
+    Processor processor = processorPool != null ? processorPool.local() : this.processor;
+    processor.set(_router).set(routings).set(identities);
+    _backlog.replay(processor);
+  }
+
+  /** See {@link AbstractProcessor#reply()}. Can be called from any thread. */
+  Reply reply(ZmqFrames route) {
+    _pendingReplies.incrementAndGet();
+    return new Reply(this, route);
+  }
+
+  /** See {@link Reply#complete(byte[])}. Can be called from any thread, reply is sent by socket thread. */
+  void complete(final ZmqFrames route, final byte[] payload) {
+    execute(new Runnable() {
+      @Override
+      public void run() {
+        _pendingReplies.decrementAndGet();
+        route(_router, route, payload, identities);
+      }
+    });
+  }
+
+  /**
+   * Routes message, slave stamps it with its identity so that master knows which slave replied
+   * (see {@link ReplyAware}).
+   */
+  static boolean route(ZmqChannel router, ZmqFrames route, byte[] payload, Object[] identities) {
+    byte[] slave = (byte[]) identities[1];
+    return slave != null
+           ? router.route(route, payload, slave, DONTWAIT)
+           : router.route(route, payload, DONTWAIT);
+  }
+
+  /** Calls {@link #processor} in place, or hands message over to {@link #processorPool}. */
+  private void process(ProcessorPool.Event event, ZmqFrames route, byte[] payload) throws Exception {
+    if (processorPool != null) {
+      processorPool.submit(event, route, payload);
+    }
+    else {
+      ProcessorPool.call(processor.set(route).set(payload).set(_router).set(routings).set(identities), event);
+    }
+  }
+
+  private void onRouterRecv(ZmqChannel router) throws Exception {
+    for (; ; ) {
+      if (!router.recv(_frames, DONTWAIT))
+        break;
+
+      ZmqFrames route = _frames.getIdentities();
+      if (_frames.payloadEquals(PING)) {
+        if (route.size() == 1) {
+          routings[1].put(route.get(0), _frames.getTrailer());
+          _liveness[1].touch(route.get(0), System.currentTimeMillis());
+          replayBacklog();
+          {
+            // Send PONG back, use identities [route|master_identity].
+            ZmqFrames masterRoute = new ZmqFrames();
+            masterRoute.add(route.get(0));
+            masterRoute.add((byte[]) identities[0]);
+            router.route(masterRoute, PONG, DONTWAIT);
+            LOGGER.debug("Got PING (slave.hash={}), send PONG back (master.hash={}).",
+                        makeHash(route.get(0)),
+                        makeHash((byte[]) identities[0]));
           }
         }
         else {
-          logTraffic("router", payload);
-          processor.set(route).set(payload).set(router).set(routings).set(identities).onRoot();
+          LOGGER.error("Wrong PING! Got route.size={}.", route.size());
         }
       }
+      else {
+        byte[] payload = _frames.getPayload();
+        logTraffic("router", payload);
+        replayBacklog(); // deferred requests go first.
+        process(ProcessorPool.Event.ROOT, route, payload);
+      }
     }
+  }
 
-    if (slave != null) {
-      if (!slave.canRecv()) {
-        // Send PING (dont send blindly, check "timer" before send, e.g. every X seconds).
-        for (String connectAddr : this.slave.connectAddr()) {
-          slave.route(new ZmqFrames(), PING, DONTWAIT);
-          LOGGER.info("Send PING (slave.hash={}) on {}.", makeHash((byte[]) identities[1]), connectAddr);
+  private void onSlaveRecv(ZmqChannel slave) throws Exception {
+    for (; ; ) {
+      if (!slave.recv(_frames, DONTWAIT))
+        break;
+
+      ZmqFrames route = _frames.getIdentities();
+      if (_frames.payloadEquals(PONG)) {
+        if (route.size() == 1) {
+          LOGGER.debug("Got PONG (master.hash={}).", makeHash(route.get(0)));
+          routings[0].put(route.get(0), _frames.getPayload());
+          _liveness[0].touch(route.get(0), System.currentTimeMillis());
+        }
+        else {
+          LOGGER.error("Wrong PONG! Got route.size={}.", route.size());
         }
       }
       else {
-        for (; ; ) {
-          ZmqFrames frames = slave.recv(DONTWAIT);
-          if (frames == null)
-            break;
-
-          byte[] payload = frames.getPayload();
-          ZmqFrames route = frames.getIdentities();
-          if (isPong(payload)) {
-            if (route.size() == 1) {
-              LOGGER.info("Got PONG (master.hash={}).", makeHash(route.get(0)));
-              routings[0].put(route.get(0), payload);
-            }
-            else {
-              LOGGER.error("Wrong PONG! Got route.size={}.", route.size());
-            }
-          }
-          else {
-            logTraffic("master", payload);
-            processor.set(route).set(payload).set(router).set(routings).set(identities).onMaster();
-          }
-        }
+        byte[] payload = _frames.getPayload();
+        logTraffic("master", payload);
+        process(ProcessorPool.Event.MASTER, route, payload);
       }
     }
+  }
 
-    if (master != null) {
-      if (master.canRecv()) {
-        for (; ; ) {
-          ZmqFrames frames = master.recv(DONTWAIT);
-          if (frames == null)
-            break;
-
-          byte[] payload = frames.getPayload();
-          ZmqFrames route = frames.getIdentities();
-          logTraffic("slave", payload);
-          processor.set(route).set(payload).set(router).set(routings).set(identities).onSlave();
+  private void onMasterRecv(ZmqChannel master) throws Exception {
+    for (; ; ) {
+      if (!master.recv(_frames, DONTWAIT))
+        break;
+
+      byte[] payload = _frames.getPayload();
+      ZmqFrames route = _frames.getIdentities();
+      logTraffic("slave", payload);
+      if (routings[1] instanceof ReplyAware) {
+        byte[] slave = _frames.getTrailer(); // stamp of replying slave, see ReplyAware.
+        if (slave.length > 0) {
+          ((ReplyAware) routings[1]).onReply(slave, payload);
         }
       }
+      process(ProcessorPool.Event.SLAVE, route, payload);
     }
+    replayBacklog();
   }
 
   private void logTraffic(String prefix, byte[] payload) {
@@ -302,14 +552,6 @@ public final class Worker extends ZmqAbstractActor {
     }
   }
 
-  private boolean isPing(byte[] payload) {
-    return Arrays.equals(payload, PING);
-  }
-
-  private boolean isPong(byte[] payload) {
-    return Arrays.equals(payload, PONG);
-  }
-
   private byte[] generateIdentity() {
     return ("" + UUID.randomUUID().getMostSignificantBits()).getBytes();
   }
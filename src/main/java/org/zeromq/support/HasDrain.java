@@ -0,0 +1,17 @@
+package org.zeromq.support;
+
+/**
+ * Marker interface saying that component which implements it can be drained before "destroy":
+ * it stops taking new work and flushes what it has pending.
+ */
+public interface HasDrain {
+
+  /**
+   * Makes one drain step. Called repeatedly (by the thread which runs component) until returns true
+   * or deadline passes.
+   *
+   * @param deadline wall-clock time (millis) by which component should be drained.
+   * @return true if component has nothing pending anymore.
+   */
+  boolean drain(long deadline) throws Exception;
+}
@@ -0,0 +1,315 @@
+package org.zeromq.support.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.messaging.ZmqException;
+import org.zeromq.messaging.ZmqFrames;
+import org.zeromq.support.HasDestroy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * FIFO journal of messages kept in memory-mapped segment files.
+ * <p/>
+ * Messages are appended to the tail segment sequentially (straight into mapped buffer, w/o intermediate copies),
+ * when tail segment is full new one is rolled. Messages are read from the head segment, fully read segments are
+ * deleted (after being unmapped, so that disk space is freed right away rather than when buffer gets garbage
+ * collected). Record layout: {@code [frame_count][frame_len, frame_bytes]*}.
+ * <p/>
+ * Total size of segment files can be capped, see {@link #MappedJournal(File, int, long)}.
+ * <p/>
+ * <b>NOTE: this is a spill area rather than durable log -- there's no recovery, segment files are deleted
+ * on {@link #destroy()}. Directory is owned by journal exclusively. Instances aren't thread safe.</b>
+ */
+public final class MappedJournal implements HasDestroy {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MappedJournal.class);
+
+  public static final int MIN_SEGMENT_SIZE = 4096;
+
+  private static final String SEGMENT_SUFFIX = ".journal";
+
+  private static final class Segment {
+
+    final File file;
+    final RandomAccessFile raf;
+    final MappedByteBuffer buf;
+    int writePos;
+    int readPos;
+
+    Segment(File file, int size) throws IOException {
+      this.file = file;
+      this.raf = new RandomAccessFile(file, "rw");
+      this.buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    boolean fits(int recordSize) {
+      return buf.capacity() - writePos >= recordSize;
+    }
+
+    boolean isEmpty() {
+      return writePos == 0;
+    }
+
+    boolean isFullyRead() {
+      return readPos == writePos;
+    }
+
+    /** Unmaps buffer and deletes file. Buffer must not be touched afterwards. */
+    void close() {
+      boolean unmapped = unmap(buf);
+      try {
+        raf.close();
+      }
+      catch (IOException e) {
+        LOG.warn("!!! Can't close segment " + file + ": " + e);
+      }
+      if (!unmapped) {
+        // file can't be deleted while it's mapped on some platforms, and its space isn't freed until then anyway.
+        LOG.warn("!!! Can't unmap segment " + file + ", it will be deleted on exit.");
+        file.deleteOnExit();
+      }
+      else if (!file.delete()) {
+        LOG.warn("!!! Can't delete segment " + file + ".");
+      }
+    }
+  }
+
+  private final File dir;
+  private final int segmentSize;
+  private final long maxBytes;
+
+  private final ArrayDeque<Segment> _segments = new ArrayDeque<Segment>();
+  private long _segmentSeq;
+  /** Cached head message, so that peeking repeatedly (while peer is slow) doesn't re-read it. */
+  private ZmqFrames _head;
+  private int _headSize;
+  private long _depth;
+  private long _bytes;
+  private long _mappedBytes;
+
+  //// CONSTRUCTORS
+
+  /**
+   * @param dir         directory for segment files, created if doesn't exist.
+   * @param segmentSize size of segment file (bytes). Messages larger than that get their own segment.
+   */
+  public MappedJournal(File dir, int segmentSize) {
+    this(dir, segmentSize, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param dir         directory for segment files, created if doesn't exist.
+   * @param segmentSize size of segment file (bytes). Messages larger than that get their own segment.
+   * @param maxBytes    max total size of segment files (bytes), {@link #append(ZmqFrames)} is refused beyond it.
+   */
+  public MappedJournal(File dir, int segmentSize, long maxBytes) {
+    checkArgument(dir != null);
+    checkArgument(segmentSize >= MIN_SEGMENT_SIZE, "Wrong segmentSize=" + segmentSize);
+    checkArgument(maxBytes >= segmentSize, "Wrong maxBytes=" + maxBytes);
+    checkArgument(dir.isDirectory() || dir.mkdirs(), "Can't create dir=" + dir);
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+    this.maxBytes = maxBytes;
+  }
+
+  //// METHODS
+
+  public int segmentSize() {
+    return segmentSize;
+  }
+
+  /** @return number of messages in journal. */
+  public long depth() {
+    return _depth;
+  }
+
+  /** @return number of bytes (records included) in journal. */
+  public long bytes() {
+    return _bytes;
+  }
+
+  /** @return total size of segment files (bytes). */
+  public long mappedBytes() {
+    return _mappedBytes;
+  }
+
+  public boolean isEmpty() {
+    return _depth == 0;
+  }
+
+  /** @return number of bytes segment files would grow by if given message is appended: 0 if it fits tail segment. */
+  public long appendCost(ZmqFrames frames) {
+    int recordSize = recordSize(frames);
+    Segment tail = _segments.peekLast();
+    if (tail != null && tail.fits(recordSize)) {
+      return 0;
+    }
+    // empty tail which doesn't fit is replaced rather than kept, see append().
+    long freed = tail != null && tail.isEmpty() ? tail.buf.capacity() : 0;
+    return Math.max(segmentSize, recordSize) - freed;
+  }
+
+  /** @return false if message doesn't fit {@code maxBytes}, see {@link #MappedJournal(File, int, long)}. */
+  public boolean append(ZmqFrames frames) {
+    checkArgument(!frames.isEmpty());
+    int recordSize = recordSize(frames);
+    Segment tail = _segments.peekLast();
+    if (tail == null || !tail.fits(recordSize)) {
+      if (_mappedBytes + appendCost(frames) > maxBytes) {
+        return false;
+      }
+      if (tail != null && tail.isEmpty()) {
+        // drained (rewound) segment is too small for the record -- replace it, otherwise it would stay
+        // at the head and be read instead of the record.
+        close(_segments.pollLast());
+      }
+      tail = roll(recordSize);
+    }
+    MappedByteBuffer buf = tail.buf;
+    buf.position(tail.writePos);
+    buf.putInt(frames.size());
+    for (byte[] frame : frames) {
+      buf.putInt(frame.length);
+      buf.put(frame);
+    }
+    tail.writePos += recordSize;
+    _depth++;
+    _bytes += recordSize;
+    return true;
+  }
+
+  /** @return the oldest message (w/o removing it) or null if journal is empty. */
+  public ZmqFrames peek() {
+    if (_head != null) {
+      return _head;
+    }
+    if (_depth == 0) {
+      return null;
+    }
+    Segment head = _segments.peekFirst();
+    while (head.isFullyRead() && _segments.size() > 1) {
+      close(_segments.pollFirst());
+      head = _segments.peekFirst();
+    }
+    MappedByteBuffer buf = head.buf;
+    buf.position(head.readPos);
+    int frameCount = buf.getInt();
+    ZmqFrames frames = new ZmqFrames(frameCount);
+    for (int i = 0; i < frameCount; i++) {
+      byte[] frame = new byte[buf.getInt()];
+      buf.get(frame);
+      frames.add(frame);
+    }
+    _headSize = buf.position() - head.readPos;
+    return _head = frames;
+  }
+
+  /** Removes the oldest message. */
+  public void remove() {
+    checkState(peek() != null, "Journal is empty!");
+    Segment head = _segments.peekFirst();
+    head.readPos += _headSize;
+    _depth--;
+    _bytes -= _headSize;
+    _head = null;
+    _headSize = 0;
+    if (head.isFullyRead()) {
+      if (_segments.size() > 1) {
+        close(_segments.pollFirst());
+      }
+      else {
+        // the only segment is drained -- rewind it instead of rolling new one.
+        head.readPos = head.writePos = 0;
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {
+    for (Segment segment : _segments) {
+      segment.close();
+    }
+    _segments.clear();
+    _head = null;
+    _depth = _bytes = _mappedBytes = 0;
+    if (!dir.delete()) {
+      LOG.warn("!!! Can't delete dir " + dir + ".");
+    }
+  }
+
+  private Segment roll(int recordSize) {
+    File file = new File(dir, String.format("%020d", _segmentSeq++) + SEGMENT_SUFFIX);
+    try {
+      Segment segment = new Segment(file, Math.max(segmentSize, recordSize));
+      _segments.offerLast(segment);
+      _mappedBytes += segment.buf.capacity();
+      return segment;
+    }
+    catch (IOException e) {
+      LOG.error("!!! Can't create segment " + file + ": " + e, e);
+      throw ZmqException.seeCause(e);
+    }
+  }
+
+  private void close(Segment segment) {
+    _mappedBytes -= segment.buf.capacity();
+    segment.close();
+  }
+
+  private static int recordSize(ZmqFrames frames) {
+    int recordSize = 4;
+    for (byte[] frame : frames) {
+      recordSize += 4 + frame.length;
+    }
+    return recordSize;
+  }
+
+  /**
+   * Releases mapping of buffer w/o waiting for GC: {@code Unsafe.invokeCleaner()} on java 9+, buffer's cleaner
+   * on java 8 and older.
+   *
+   * @return false if buffer can't be unmapped.
+   */
+  private static boolean unmap(MappedByteBuffer buf) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      invokeCleaner.invoke(theUnsafe.get(null), buf);
+      return true;
+    }
+    catch (NoSuchMethodException e) {
+      // java 8 and older, see below.
+    }
+    catch (Exception e) {
+      LOG.warn("Gobble exception at unmap(): " + e);
+      return false;
+    }
+    try {
+      Method cleanerMethod = buf.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buf);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+      return true;
+    }
+    catch (Exception e) {
+      LOG.warn("Gobble exception at unmap(): " + e);
+      return false;
+    }
+  }
+}
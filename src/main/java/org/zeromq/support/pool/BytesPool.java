@@ -0,0 +1,86 @@
+package org.zeromq.support.pool;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Pool of {@code byte[]} buffers organized in power-of-two size classes.
+ * <p/>
+ * Buffers are handed out by size class, i.e. returned buffer can be longer than requested,
+ * so it's up to client to track actual content length.
+ * Requests exceeding the largest size class aren't pooled -- they are served with exact-length
+ * buffers which are simply dropped on {@link #release(byte[])}.
+ * <p/>
+ * <b>NOTE: this class isn't thread safe. It's meant to be owned by single (socket) thread.</b>
+ */
+public final class BytesPool {
+
+  public static final int MIN_BUF_SIZE = 64; // just best guess.
+  public static final int DEFAULT_CLASS_CAPACITY = 16; // just best guess.
+
+  private static final int MIN_BUF_SIZE_LOG2 = Integer.numberOfTrailingZeros(MIN_BUF_SIZE);
+
+  private final int maxBufSize;
+
+  private final byte[][][] _classes;
+  private final int[] _free; // number of free buffers in every size class.
+
+  //// CONSTRUCTORS
+
+  public BytesPool(int maxBufSize) {
+    this(maxBufSize, DEFAULT_CLASS_CAPACITY);
+  }
+
+  public BytesPool(int maxBufSize, int classCapacity) {
+    checkArgument(maxBufSize > 0, "Wrong maxBufSize=" + maxBufSize);
+    checkArgument(classCapacity > 0, "Wrong classCapacity=" + classCapacity);
+    int classNum = classOf(maxBufSize) + 1;
+    this.maxBufSize = MIN_BUF_SIZE << (classNum - 1);
+    _classes = new byte[classNum][classCapacity][];
+    _free = new int[classNum];
+  }
+
+  //// METHODS
+
+  /** @return buffer of at least {@code size} bytes. */
+  public byte[] borrow(int size) {
+    if (size > maxBufSize) {
+      return new byte[size];
+    }
+    int c = classOf(size);
+    int n = _free[c];
+    if (n == 0) {
+      return new byte[MIN_BUF_SIZE << c];
+    }
+    byte[][] bufs = _classes[c];
+    byte[] buf = bufs[--n];
+    bufs[n] = null;
+    _free[c] = n;
+    return buf;
+  }
+
+  /** Returns buffer back to pool. Buffers which don't fit any size class (or class is full) are dropped. */
+  public void release(byte[] buf) {
+    int len = buf.length;
+    if (len < MIN_BUF_SIZE || len > maxBufSize || Integer.bitCount(len) != 1) {
+      return;
+    }
+    int c = classOf(len);
+    int n = _free[c];
+    byte[][] bufs = _classes[c];
+    if (n < bufs.length) {
+      bufs[n] = buf;
+      _free[c] = n + 1;
+    }
+  }
+
+  public int maxBufSize() {
+    return maxBufSize;
+  }
+
+  private static int classOf(int size) {
+    if (size <= MIN_BUF_SIZE) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_BUF_SIZE_LOG2;
+  }
+}
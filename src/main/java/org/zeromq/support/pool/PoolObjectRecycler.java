@@ -0,0 +1,18 @@
+package org.zeromq.support.pool;
+
+/**
+ * {@link PoolObjectLifecycle} for objects which are expensive to build and thus worth reusing,
+ * but which can go stale or carry state between leases.
+ */
+public interface PoolObjectRecycler<T> extends PoolObjectLifecycle<T> {
+
+  /**
+   * Called before pooled object is leased again.
+   *
+   * @return false if object can't be reused -- then it's destroyed and new one is built.
+   */
+  boolean validate(T t);
+
+  /** Called when object is released back to pool: clear whatever previous lessee left. */
+  void reset(T t);
+}
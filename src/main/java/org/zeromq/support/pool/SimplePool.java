@@ -1,19 +1,25 @@
 package org.zeromq.support.pool;
 
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class SimplePool<T> implements Pool<T> {
 
   public static final int DEFAULT_CAPACITY = 64; // just best guess.
 
+  /** Lease is created per borrow, so that stale lease (released already) can't release object of next lessee. */
   private static class LeaseImpl<T> implements Lease<T> {
 
     final SimplePool<T> pool;
     final int ind;
     final T obj;
+    final AtomicBoolean released = new AtomicBoolean();
 
     LeaseImpl(SimplePool<T> pool, int ind, T obj) {
       this.pool = pool;
@@ -27,20 +33,24 @@ public final class SimplePool<T> implements Pool<T> {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void release() {
+      if (!released.compareAndSet(false, true)) {
+        return; // already released.
+      }
+      if (pool.lifecycle instanceof PoolObjectRecycler) {
+        ((PoolObjectRecycler<T>) pool.lifecycle).reset(obj);
+      }
       pool._state.set(ind, true); // set to 1 - free.
       pool.indexes.offerFirst(ind);
     }
-
-    void destroy() {
-      pool.lifecycle.destroy(obj);
-    }
   }
 
   private final int capacity;
   private final PoolObjectLifecycle<T> lifecycle;
 
-  private final LeaseImpl[] _pool;
+  /** Pooled objects by slot, null for never-leased slot. */
+  private final List<T> _pool;
   private final BlockingDeque<Integer> indexes;
   private final BitSet _state; // 1 - obj in pool is free, 0 - obj in pool is busy.
 
@@ -54,7 +64,7 @@ public final class SimplePool<T> implements Pool<T> {
     this.capacity = capacity;
     this.lifecycle = lifecycle;
 
-    _pool = new LeaseImpl[capacity];
+    _pool = new ArrayList<T>(Collections.<T>nCopies(capacity, null));
     _state = new BitSet(capacity);
     indexes = new LinkedBlockingDeque<>(capacity);
     for (int i = 0; i < capacity; i++) {
@@ -85,7 +95,7 @@ public final class SimplePool<T> implements Pool<T> {
   @Override
   public int available() {
     int size = 0;
-    for (int i = 0; i < _pool.length; i++) {
+    for (int i = 0; i < capacity; i++) {
       if (_state.get(i)) { // check that obj is free.
         size++;
       }
@@ -101,17 +111,25 @@ public final class SimplePool<T> implements Pool<T> {
   @SuppressWarnings("unchecked")
   private Lease<T> leaseInternal(int ind) {
     _state.set(ind, false); // set to 0 - busy.
-    LeaseImpl lease = _pool[ind];
-    if (lease == null) {
-      _pool[ind] = (lease = new LeaseImpl(this, ind, lifecycle.build()));
+    T obj = _pool.get(ind);
+    if (obj != null && lifecycle instanceof PoolObjectRecycler) {
+      if (!((PoolObjectRecycler<T>) lifecycle).validate(obj)) {
+        lifecycle.destroy(obj);
+        obj = null;
+      }
     }
-    return lease;
+    if (obj == null) {
+      _pool.set(ind, obj = lifecycle.build());
+    }
+    return new LeaseImpl<T>(this, ind, obj);
   }
 
   @Override
   public void destroy() {
-    for (LeaseImpl lease : _pool) {
-      lease.destroy();
+    for (T obj : _pool) {
+      if (obj != null) {
+        lifecycle.destroy(obj);
+      }
     }
   }
 }
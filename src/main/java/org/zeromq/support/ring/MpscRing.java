@@ -0,0 +1,112 @@
+package org.zeromq.support.ring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bounded pre-allocated multi-producer/single-consumer ring buffer.
+ * <p/>
+ * Every slot has a sequence number which tells whether slot is free for producer at given position
+ * ({@code seq == pos}) or is filled and ready for consumer ({@code seq == pos + 1}). Producers claim
+ * positions by CAS on tail, consumer advances head w/o CAS.
+ * <p/>
+ * <b>NOTE: {@link #poll()} must be called by single thread.</b>
+ */
+public final class MpscRing<E> {
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<E> _buffer;
+  private final AtomicLongArray _sequences;
+  private final AtomicLong _tail = new AtomicLong();
+  private final AtomicLong _head = new AtomicLong();
+
+  //// CONSTRUCTORS
+
+  /** @param capacity ring capacity, rounded up to power of two. */
+  public MpscRing(int capacity) {
+    checkArgument(capacity > 0 && capacity <= (1 << 30), "Wrong capacity=" + capacity);
+    this.capacity = Math.max(Integer.highestOneBit(capacity - 1) << 1, 1);
+    this.mask = this.capacity - 1;
+    _buffer = new AtomicReferenceArray<E>(this.capacity);
+    _sequences = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      _sequences.set(i, i);
+    }
+  }
+
+  //// METHODS
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /** @return false if ring is full. */
+  public boolean offer(E e) {
+    checkArgument(e != null);
+    long pos = claim();
+    if (pos < 0) {
+      return false;
+    }
+    publish(pos, e);
+    return true;
+  }
+
+  /**
+   * Claims slot for element which isn't ready yet, so that other producers can't take it. Claimed slot
+   * must be {@link #publish(long, Object)}-ed: consumer doesn't get past it until then.
+   *
+   * @return position of claimed slot, or -1 if ring is full.
+   */
+  public long claim() {
+    for (; ; ) {
+      long pos = _tail.get();
+      int i = (int) pos & mask;
+      long dif = _sequences.get(i) - pos;
+      if (dif == 0) {
+        if (_tail.compareAndSet(pos, pos + 1)) {
+          return pos;
+        }
+      }
+      else if (dif < 0) {
+        return -1;
+      }
+      // otherwise other producer got ahead, retry.
+    }
+  }
+
+  /** Puts element into slot claimed by {@link #claim()} and makes it visible to consumer. */
+  public void publish(long pos, E e) {
+    checkArgument(e != null);
+    int i = (int) pos & mask;
+    _buffer.lazySet(i, e);
+    _sequences.lazySet(i, pos + 1);
+  }
+
+  /** @return element or null if ring is empty (or element at head isn't published yet). */
+  public E poll() {
+    long pos = _head.get();
+    int i = (int) pos & mask;
+    if (_sequences.get(i) != pos + 1) {
+      return null;
+    }
+    E e = _buffer.get(i);
+    _buffer.lazySet(i, null);
+    _sequences.lazySet(i, pos + capacity);
+    _head.lazySet(pos + 1);
+    return e;
+  }
+
+  /** @return approximate number of elements, can be called from any thread. */
+  public int size() {
+    long size = _tail.get() - _head.get();
+    return (int) Math.max(0, Math.min(size, capacity));
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+}
@@ -0,0 +1,173 @@
+package org.zeromq.support.thread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Decides how actor waits for traffic: whether to block in poller or poll w/o blocking and
+ * spin/yield/park in between. Call sequence (per loop iteration):
+ * <pre>
+ *   events = poller.poll(strategy.pollTimeout(timeout));
+ *   strategy.idle(events);
+ * </pre>
+ * Blocking strategy is cheap on CPU but the first message after idle gap pays full wake-up. Spinning
+ * strategies trade a core for reaction time.
+ * <p/>
+ * <b>NOTE: strategies are stateful, every actor must have its own instance.</b>
+ */
+public abstract class IdleStrategy {
+
+  /** Block in poller (default). */
+  public static IdleStrategy blocking() {
+    return new Blocking();
+  }
+
+  /** Never block: poll w/o timeout in a tight loop. */
+  public static IdleStrategy busySpin() {
+    return new SpinPark(Integer.MAX_VALUE, 0, 0);
+  }
+
+  /** Spin {@code spins} empty polls, then yield thread between polls. */
+  public static IdleStrategy spinYield(int spins) {
+    checkArgument(spins >= 0, "Wrong spins=" + spins);
+    return new SpinPark(spins, Integer.MAX_VALUE, 0);
+  }
+
+  /**
+   * Spin {@code spins} empty polls, yield {@code yields} times, then park with exponential backoff
+   * (from 1 micro up to {@code maxPark} micros).
+   */
+  public static IdleStrategy spinPark(int spins, int yields, long maxPark) {
+    checkArgument(spins >= 0, "Wrong spins=" + spins);
+    checkArgument(yields >= 0, "Wrong yields=" + yields);
+    checkArgument(maxPark > 0, "Wrong maxPark=" + maxPark);
+    return new SpinPark(spins, yields, TimeUnit.MICROSECONDS.toNanos(maxPark));
+  }
+
+  /**
+   * Spin while traffic is expected soon, block otherwise. Spin window is tuned from recent arrival rate:
+   * it's twice the average (EWMA) gap between arrivals, but no more than {@code maxSpin} micros.
+   * So busy actor reacts in microseconds while idle one falls back to blocking poll.
+   */
+  public static IdleStrategy adaptive(long maxSpin) {
+    checkArgument(maxSpin > 0, "Wrong maxSpin=" + maxSpin);
+    return new Adaptive(TimeUnit.MICROSECONDS.toNanos(maxSpin));
+  }
+
+  /**
+   * @param timeout poll timeout which actor would use if it were blocking.
+   * @return timeout for the next poll, {@code 0} means don't block.
+   */
+  public abstract long pollTimeout(long timeout);
+
+  /**
+   * Called after every poll.
+   *
+   * @param events number of events returned by poll.
+   */
+  public abstract void idle(int events);
+
+  private static final class Blocking extends IdleStrategy {
+
+    @Override
+    public long pollTimeout(long timeout) {
+      return timeout;
+    }
+
+    @Override
+    public void idle(int events) {
+    }
+
+    @Override
+    public String toString() {
+      return "blocking";
+    }
+  }
+
+  private static final class SpinPark extends IdleStrategy {
+
+    final long spins;
+    final long yields;
+    final long maxParkNanos;
+
+    long _idleCount;
+    long _parkNanos;
+
+    SpinPark(int spins, int yields, long maxParkNanos) {
+      this.spins = spins;
+      this.yields = (long) spins + yields;
+      this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public long pollTimeout(long timeout) {
+      return 0;
+    }
+
+    @Override
+    public void idle(int events) {
+      if (events > 0) {
+        _idleCount = 0;
+        _parkNanos = 0;
+        return;
+      }
+      long idleCount = _idleCount++;
+      if (idleCount < spins) {
+        return;
+      }
+      if (idleCount < yields) {
+        Thread.yield();
+        return;
+      }
+      _parkNanos = Math.min(Math.max(_parkNanos << 1, 1000), maxParkNanos);
+      LockSupport.parkNanos(_parkNanos);
+    }
+
+    @Override
+    public String toString() {
+      return "spin_park(spins=" + spins + ", yields=" + (yields - spins) + ", max_park_nanos=" + maxParkNanos + ")";
+    }
+  }
+
+  private static final class Adaptive extends IdleStrategy {
+
+    static final double ALPHA = 0.1; // EWMA smoothing factor, best guess.
+
+    final long maxSpinNanos;
+
+    double _avgGapNanos = Double.MAX_VALUE;
+    long _lastEventNanos;
+
+    Adaptive(long maxSpinNanos) {
+      this.maxSpinNanos = maxSpinNanos;
+    }
+
+    @Override
+    public long pollTimeout(long timeout) {
+      if (_lastEventNanos == 0) {
+        return timeout; // no events yet, nothing to spin for.
+      }
+      long spinNanos = (long) Math.min(2 * _avgGapNanos, maxSpinNanos);
+      return System.nanoTime() - _lastEventNanos < spinNanos ? 0 : timeout;
+    }
+
+    @Override
+    public void idle(int events) {
+      if (events > 0) {
+        long now = System.nanoTime();
+        if (_lastEventNanos != 0) {
+          long gap = now - _lastEventNanos;
+          _avgGapNanos = _avgGapNanos == Double.MAX_VALUE ? gap : _avgGapNanos + ALPHA * (gap - _avgGapNanos);
+        }
+        _lastEventNanos = now;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "adaptive(max_spin_nanos=" + maxSpinNanos + ")";
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.zeromq.support.thread;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.zeromq.support.HasDrain;
 import org.zeromq.support.HasInvariant;
 import org.zeromq.support.ObjectBuilder;
 import org.zeromq.support.exception.ExceptionHandler;
@@ -10,6 +11,7 @@ import org.zeromq.support.exception.JniExceptionHandler;
 import org.zeromq.support.exception.RootExceptionHandler;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -17,6 +19,9 @@ public final class ZmqProcess implements Runnable {
 
   private static final Logger LOG = LoggerFactory.getLogger(ZmqProcess.class);
 
+  /** Pause between drain steps, see {@link HasDrain}. */
+  private static final long DRAIN_BACKOFF = 1;
+
   private static final ExceptionHandler DEFAULT_EXCEPTION_HANDLER_CHAIN =
       new RootExceptionHandler()
           .withNext(new JniExceptionHandler()
@@ -58,6 +63,8 @@ public final class ZmqProcess implements Runnable {
   private CountDownLatch destroyLatch;
   private ZmqActor actor;
   private ExceptionHandler exceptionHandler = DEFAULT_EXCEPTION_HANDLER_CHAIN;
+  /** Wall-clock drain deadline, 0 means process isn't draining. */
+  private volatile long _drainDeadline;
 
   //// CONSTRUCTORS
 
@@ -70,10 +77,23 @@ public final class ZmqProcess implements Runnable {
     return new Builder();
   }
 
+  /**
+   * Asks process to stop gracefully: at the next loop iteration process stops calling {@link ZmqActor#exec()}
+   * and drains actor (if it's {@link HasDrain}) until it's drained or timeout passes, then destroys actor and exits.
+   * Can be called from any thread.
+   *
+   * @param timeout drain timeout in millis.
+   */
+  public void drain(long timeout) {
+    checkArgument(timeout >= 0, "Wrong timeout=" + timeout);
+    _drainDeadline = Math.max(System.currentTimeMillis() + timeout, 1);
+  }
+
   /**
    * <ul>
    * <li>method loops indefinitely calling <i>some client specified logic</i> util something is happened.</li>
    * <li>thread was interrupted => this is the loop exit.</li>
+   * <li>process was asked to {@link #drain(long)} and actor got drained => loop exit.</li>
    * <li>got exception and {@link #exceptionHandler} failed to process it and re-thrown it => loop exit.</li>
    * </ul>
    */
@@ -83,6 +103,12 @@ public final class ZmqProcess implements Runnable {
       actor.init();
       // here we go ...
       while (!Thread.currentThread().isInterrupted()) {
+        if (_drainDeadline != 0) {
+          if (drainStep()) {
+            break;
+          }
+          continue;
+        }
         try {
           actor.exec();
         }
@@ -116,7 +142,33 @@ public final class ZmqProcess implements Runnable {
     }
   }
 
-  /** <b>NOTE: this is SPI method for unit tests. Don't touch it.</b> */
+  /** @return true if drain is over: actor has been drained, deadline passed or thread got interrupted. */
+  private boolean drainStep() {
+    long deadline = _drainDeadline;
+    if (!(actor instanceof HasDrain)) {
+      return true;
+    }
+    try {
+      if (((HasDrain) actor).drain(deadline) || System.currentTimeMillis() >= deadline) {
+        return true;
+      }
+      TimeUnit.MILLISECONDS.sleep(DRAIN_BACKOFF);
+      return false;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return true;
+    }
+    catch (Exception e) {
+      exceptionHandler.handleException(e);
+      return System.currentTimeMillis() >= deadline;
+    }
+  }
+
+  /**
+   * @param destroyLatch counted down once process has destroyed its actor, this is how {@link ZmqRuntime}
+   *                     (and unit tests) wait for processes to stop.
+   */
   void setDestroyLatch(CountDownLatch destroyLatch) {
     this.destroyLatch = destroyLatch;
   }
@@ -0,0 +1,151 @@
+package org.zeromq.support.thread;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.support.HasDestroy;
+import org.zeromq.support.HasInit;
+import org.zeromq.support.HasInvariant;
+import org.zeromq.support.ObjectBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Runs {@link ZmqProcess}-es, one per thread, on bounded set of named threads. Shutdown is graceful:
+ * <ol>
+ * <li>every process is asked to {@link ZmqProcess#drain(long)}: stop taking new work, flush pending sends;</li>
+ * <li>runtime waits for processes to destroy their actors, up to drain timeout (plus grace period);</li>
+ * <li>processes which are still running get interrupted.</li>
+ * </ol>
+ * <b>NOTE: {@code ZmqContext} should be destroyed after runtime, since messages left in sockets are
+ * delivered (within linger set at drain) on context termination.</b>
+ */
+public final class ZmqRuntime implements HasInit, HasDestroy {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZmqRuntime.class);
+
+  private static final long DEFAULT_DRAIN_TIMEOUT = 3000;
+  /** On top of drain timeout: actor may be in the middle of poll when it's asked to drain. */
+  private static final long DRAIN_GRACE_PERIOD = 1000;
+  private static final long INTERRUPT_TIMEOUT = 1000;
+
+  public static final class Builder implements ObjectBuilder<ZmqRuntime>, HasInvariant {
+
+    private final ZmqRuntime _target = new ZmqRuntime();
+
+    private Builder() {
+    }
+
+    public Builder with(ZmqProcess process) {
+      _target.processes.add(process);
+      return this;
+    }
+
+    /** @param threadNum max number of threads, i.e. max number of processes. */
+    public Builder withThreadNum(int threadNum) {
+      _target.threadNum = threadNum;
+      return this;
+    }
+
+    /** @param threadNameFormat thread name format (with {@code %d}), e.g. {@code "zmq-runtime-%d"}. */
+    public Builder withThreadNameFormat(String threadNameFormat) {
+      _target.threadNameFormat = threadNameFormat;
+      return this;
+    }
+
+    public Builder withDrainTimeout(long drainTimeout) {
+      _target.drainTimeout = drainTimeout;
+      return this;
+    }
+
+    @Override
+    public void checkInvariant() {
+      checkArgument(_target.threadNum > 0, "Wrong threadNum=" + _target.threadNum);
+      checkArgument(_target.processes.size() <= _target.threadNum,
+                    "Too many processes=" + _target.processes.size() + ", threadNum=" + _target.threadNum);
+      checkArgument(_target.threadNameFormat != null && _target.threadNameFormat.contains("%d"),
+                    "Wrong threadNameFormat=" + _target.threadNameFormat);
+      checkArgument(_target.drainTimeout >= 0, "Wrong drainTimeout=" + _target.drainTimeout);
+    }
+
+    @Override
+    public ZmqRuntime build() {
+      checkInvariant();
+      return _target;
+    }
+  }
+
+  private final List<ZmqProcess> processes = new ArrayList<ZmqProcess>();
+  private int threadNum = Runtime.getRuntime().availableProcessors();
+  private String threadNameFormat = "zmq-runtime-%d";
+  private long drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+
+  private CountDownLatch _destroyLatch;
+  private ThreadPoolExecutor _executor;
+  private boolean _destroyed;
+
+  //// CONSTRUCTORS
+
+  private ZmqRuntime() {
+  }
+
+  //// METHODS
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public void init() {
+    checkState(_executor == null, "Runtime is initialized already!");
+    checkState(!_destroyed, "Runtime is destroyed already!");
+    // every process holds its thread until destroy, so there's no queue: extra process is rejected.
+    _executor = new ThreadPoolExecutor(threadNum,
+                                       threadNum,
+                                       0L,
+                                       TimeUnit.MILLISECONDS,
+                                       new SynchronousQueue<Runnable>(),
+                                       new ThreadFactoryBuilder().setDaemon(true)
+                                                                 .setNameFormat(threadNameFormat)
+                                                                 .build());
+    _destroyLatch = new CountDownLatch(processes.size());
+    for (ZmqProcess process : processes) {
+      process.setDestroyLatch(_destroyLatch);
+      _executor.execute(process);
+    }
+  }
+
+  /** Drains and stops processes. Subsequent calls do nothing. */
+  @Override
+  public void destroy() {
+    if (_executor == null || _destroyed) {
+      return;
+    }
+    _destroyed = true;
+    for (ZmqProcess process : processes) {
+      process.drain(drainTimeout);
+    }
+    _executor.shutdown();
+    try {
+      if (!_destroyLatch.await(drainTimeout + DRAIN_GRACE_PERIOD, TimeUnit.MILLISECONDS)) {
+        LOG.warn("!!! Processes didn't drain in time, left=" + _destroyLatch.getCount() + ". Interrupting.");
+        _executor.shutdownNow();
+        if (!_destroyLatch.await(INTERRUPT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+          LOG.error("!!! Processes didn't stop after interrupt, left=" + _destroyLatch.getCount());
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      _executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package org.zeromq.support.timer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Single-threaded hashed wheel of timers: O(1) schedule and cancel, no allocation per tick or per expiry.
+ * <p/>
+ * Time is split in ticks of {@code tickMillis}, wheel has {@code wheelSize} buckets, timer due at tick
+ * {@code t} sits in bucket {@code t % wheelSize}. Timers are intrusive {@link Node}-s (doubly linked), so
+ * the caller allocates node once and may re-schedule it as many times as needed.
+ * <p/>
+ * Wheel doesn't run any thread, owner drives it:
+ * <pre>
+ *   poller.poll(wheel.timeout(now, pollTimeout));
+ *   for (Node node; (node = wheel.poll(now)) != null; ) {
+ *     ... node has expired ...
+ *   }
+ * </pre>
+ * <b>NOTE: not thread safe. Timers fire not earlier than deadline, and not later than deadline + tick
+ * (provided owner calls {@link #poll(long)} in time).</b>
+ */
+public final class HashedWheelTimer {
+
+  public static final long DEFAULT_TICK_MILLIS = 1;
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+
+  /** Timer node, extend it to carry payload. */
+  public static class Node {
+
+    private Bucket _bucket;
+    private Node _prev;
+    private Node _next;
+    private long _tick;
+
+    /** @return true if node is scheduled (or expired but not polled yet). */
+    public final boolean isScheduled() {
+      return _bucket != null;
+    }
+  }
+
+  private static final class Bucket {
+
+    Node head;
+    Node tail;
+
+    void add(Node node) {
+      node._bucket = this;
+      node._prev = tail;
+      node._next = null;
+      if (tail == null) {
+        head = node;
+      }
+      else {
+        tail._next = node;
+      }
+      tail = node;
+    }
+
+    void remove(Node node) {
+      if (node._prev == null) {
+        head = node._next;
+      }
+      else {
+        node._prev._next = node._next;
+      }
+      if (node._next == null) {
+        tail = node._prev;
+      }
+      else {
+        node._next._prev = node._prev;
+      }
+      node._bucket = null;
+      node._prev = null;
+      node._next = null;
+    }
+  }
+
+  private final long tickMillis;
+  private final int mask;
+  private final long startTime;
+
+  private final Bucket[] _wheel;
+  /** Expired nodes which haven't been polled yet. */
+  private final Bucket _expired = new Bucket();
+  /** Next tick to be processed. */
+  private long _tick;
+  private int _size;
+  /** Cached earliest tick with timers, -1 if it has to be recalculated. */
+  private long _nextTick = -1;
+
+  //// CONSTRUCTORS
+
+  public HashedWheelTimer(long now) {
+    this(now, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+  }
+
+  /**
+   * @param now        current time (millis), wheel starts at this moment.
+   * @param tickMillis tick duration, i.e. timer resolution.
+   * @param wheelSize  number of buckets, rounded up to power of two.
+   */
+  public HashedWheelTimer(long now, long tickMillis, int wheelSize) {
+    checkArgument(tickMillis > 0, "Wrong tickMillis=" + tickMillis);
+    checkArgument(wheelSize > 0 && wheelSize <= (1 << 20), "Wrong wheelSize=" + wheelSize);
+    int size = Math.max(Integer.highestOneBit(wheelSize - 1) << 1, 1);
+    this.tickMillis = tickMillis;
+    this.mask = size - 1;
+    this.startTime = now;
+    _wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      _wheel[i] = new Bucket();
+    }
+  }
+
+  //// METHODS
+
+  /** @return number of scheduled timers. */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Schedules (or re-schedules) node. Deadline in the past means "expire at the next {@link #poll(long)}".
+   *
+   * @param deadline time (millis) at which node expires.
+   */
+  public void schedule(Node node, long deadline) {
+    checkArgument(node != null);
+    if (node._bucket != null) {
+      cancel(node);
+    }
+    // ceil: node must not fire before deadline.
+    long tick = Math.max(ceilDiv(deadline - startTime, tickMillis), _tick);
+    node._tick = tick;
+    _wheel[(int) tick & mask].add(node);
+    _size++;
+    if (_nextTick >= 0 && tick < _nextTick) {
+      _nextTick = tick;
+    }
+  }
+
+  /** @return false if node wasn't scheduled. */
+  public boolean cancel(Node node) {
+    checkArgument(node != null);
+    if (node._bucket == null) {
+      return false;
+    }
+    node._bucket.remove(node);
+    _size--;
+    return true;
+  }
+
+  /**
+   * Takes the next expired node out of the wheel.
+   *
+   * @return expired node or null if there're no more nodes expired by {@code now}.
+   */
+  public Node poll(long now) {
+    if (_expired.head == null) {
+      advance(now);
+    }
+    Node node = _expired.head;
+    if (node == null) {
+      return null;
+    }
+    _expired.remove(node);
+    _size--;
+    return node;
+  }
+
+  /**
+   * @param timeout poll timeout owner would use if there were no timers.
+   * @return given timeout cut down to the time left until the earliest timer.
+   */
+  public long timeout(long now, long timeout) {
+    if (_size == 0) {
+      return timeout;
+    }
+    if (_expired.head != null) {
+      return 0;
+    }
+    long nextTick = nextTick();
+    return Math.max(0, Math.min(timeout, startTime + nextTick * tickMillis - now));
+  }
+
+  /** Moves nodes of all ticks which are due by {@code now} into {@link #_expired}. */
+  private void advance(long now) {
+    long dueTick = (now - startTime) / tickMillis;
+    if (_size == 0) {
+      _tick = Math.max(_tick, dueTick + 1);
+      _nextTick = -1;
+      return;
+    }
+    for (; _tick <= dueTick; _tick++) {
+      Bucket bucket = _wheel[(int) _tick & mask];
+      Node node = bucket.head;
+      while (node != null) {
+        Node next = node._next;
+        if (node._tick <= _tick) {
+          bucket.remove(node);
+          _expired.add(node);
+        }
+        node = next;
+      }
+      if (_tick == _nextTick) {
+        _nextTick = -1;
+      }
+      if (_expired.head != null) {
+        // stop here, so that next ticks get processed at the next poll() and nodes re-scheduled by
+        // owner in between land in proper buckets.
+        _tick++;
+        return;
+      }
+    }
+  }
+
+  /** @return the earliest tick having timers, scans at most one wheel round. */
+  private long nextTick() {
+    if (_nextTick >= 0) {
+      return _nextTick;
+    }
+    checkState(_size > 0);
+    for (long tick = _tick; tick < _tick + _wheel.length; tick++) {
+      for (Node node = _wheel[(int) tick & mask].head; node != null; node = node._next) {
+        if (node._tick <= tick) {
+          return _nextTick = tick;
+        }
+      }
+    }
+    // all timers are further than one round: wake up in one round and look again.
+    return _nextTick = _tick + _wheel.length;
+  }
+
+  private static long ceilDiv(long a, long b) {
+    return a <= 0 ? 0 : (a + b - 1) / b;
+  }
+}
@@ -0,0 +1,71 @@
+package org.zeromq.messaging;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InprocRefRegistryTest {
+
+  @Test
+  public void t0() {
+    InprocRefRegistry registry = new InprocRefRegistry(3);
+    assertEquals(4, registry.capacity());
+
+    Object obj = new Object();
+    int ref = registry.put(obj);
+    assertTrue(ref >= 0);
+    assertSame(obj, registry.take(ref));
+    assertNull(registry.take(ref)); // stale.
+    assertFalse(registry.release(ref)); // stale.
+
+    for (int i = 0; i < registry.capacity(); i++) {
+      assertTrue(registry.put(i) >= 0);
+    }
+    assertEquals(-1, registry.put(obj)); // full.
+  }
+
+  @Test
+  public void t1() throws Exception {
+    final InprocRefRegistry registry = new InprocRefRegistry(64);
+    final int threadNum = 4;
+    final int iterations = 100000;
+    final AtomicInteger errors = new AtomicInteger();
+    final CountDownLatch latch = new CountDownLatch(threadNum);
+    ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+    for (int t = 0; t < threadNum; t++) {
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < iterations; i++) {
+              Object obj = new Object();
+              int ref;
+              while ((ref = registry.put(obj)) < 0) {
+                Thread.yield();
+              }
+              if (registry.take(ref) != obj || registry.take(ref) != null) {
+                errors.incrementAndGet();
+              }
+            }
+          }
+          finally {
+            latch.countDown();
+          }
+        }
+      });
+    }
+    assertTrue(latch.await(30, TimeUnit.SECONDS));
+    executor.shutdownNow();
+    assertEquals(0, errors.get());
+  }
+}
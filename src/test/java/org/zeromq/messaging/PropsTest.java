@@ -3,6 +3,7 @@ package org.zeromq.messaging;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class PropsTest {
 
@@ -37,4 +38,17 @@ public class PropsTest {
     assertEquals("epgm://10.0.0.13;239.192.1.1:3055", props.connectAddr().get(1));
     assertEquals("tcp://localhost:7000", props.connectAddr().get(2));
   }
+
+  @Test
+  public void t1() {
+    Props props = Props.builder().withBindAddr("tcp://*:9090").build();
+    Props bounded = props.bounded();
+    assertEquals(Props.DEFAULT_BOUNDED_MAX_MSG_SIZE, bounded.maxMsgSize());
+    assertEquals(props.bindAddr(), bounded.bindAddr());
+    assertEquals(-1, props.maxMsgSize()); // source props are intact.
+
+    // explicit bound is kept.
+    props = Props.builder().withMaxMsgSize(1024).build();
+    assertSame(props, props.bounded());
+  }
 }
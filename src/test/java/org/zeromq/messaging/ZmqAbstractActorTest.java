@@ -0,0 +1,124 @@
+package org.zeromq.messaging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZmqAbstractActorTest {
+
+  static class TimerActor extends ZmqAbstractActor {
+
+    final List<String> fired = new ArrayList<String>();
+
+    @Override
+    public void init() {
+    }
+
+    ZmqTimer schedule(final String name, long delay, long period) {
+      return schedule(delay, period, new ZmqTimerTask() {
+        @Override
+        public void onTimer() {
+          fired.add(name);
+        }
+      });
+    }
+  }
+
+  @Test
+  public void t0() throws Exception {
+    TimerActor actor = new TimerActor();
+    actor.schedule("b", 20, 0);
+    actor.schedule("a", 0, 0);
+    ZmqTimer c = actor.schedule("c", 0, 0);
+    c.cancel();
+
+    assertEquals(0, actor.timersTimeout(1000));
+    actor.fireTimers();
+    assertEquals("[a]", actor.fired.toString());
+
+    long timeout = actor.timersTimeout(1000);
+    assertTrue("timeout=" + timeout, timeout > 0 && timeout <= 20);
+    Thread.sleep(timeout + 1);
+    actor.fireTimers();
+    assertEquals("[a, b]", actor.fired.toString());
+
+    // no timers => poll timeout is intact.
+    assertEquals(1000, actor.timersTimeout(1000));
+  }
+
+  @Test
+  public void t1() throws Exception {
+    TimerActor actor = new TimerActor();
+    ZmqTimer timer = actor.schedule("p", 0, 10);
+
+    actor.fireTimers();
+    actor.fireTimers(); // not expired yet.
+    assertEquals(1, actor.fired.size());
+
+    Thread.sleep(15);
+    actor.fireTimers();
+    assertEquals(2, actor.fired.size());
+
+    timer.cancel();
+    Thread.sleep(15);
+    actor.fireTimers();
+    assertEquals(2, actor.fired.size());
+    assertEquals(1000, actor.timersTimeout(1000));
+  }
+
+  @Test
+  public void t2() throws Exception {
+    // tasks from other threads are run on actor's thread, in order of submission.
+    final TimerActor actor = new TimerActor();
+    actor.openMailbox();
+    final int n = 1500;
+    final CountDownLatch latch = new CountDownLatch(2);
+    for (final String name : new String[]{"x", "y"}) {
+      new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < n; i++) {
+            final int seq = i;
+            actor.execute(new Runnable() {
+              @Override
+              public void run() {
+                actor.fired.add(name + seq);
+              }
+            });
+          }
+          latch.countDown();
+        }
+      }.start();
+    }
+    latch.await();
+    actor.runMailbox();
+    actor.runMailbox();
+    actor.runMailbox();
+    assertEquals(2 * n, actor.fired.size());
+    int x = 0;
+    int y = 0;
+    for (String task : actor.fired) {
+      if (task.startsWith("x")) {
+        assertEquals("x" + x++, task);
+      }
+      else {
+        assertEquals("y" + y++, task);
+      }
+    }
+    actor.destroy();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void t3() {
+    new TimerActor().execute(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+  }
+}
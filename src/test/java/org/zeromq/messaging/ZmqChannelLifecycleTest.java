@@ -0,0 +1,81 @@
+package org.zeromq.messaging;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.ZMQ;
+import org.zeromq.support.pool.Lease;
+import org.zeromq.support.pool.SimplePool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.zeromq.ZMQ.DONTWAIT;
+
+public class ZmqChannelLifecycleTest extends ZmqAbstractTest {
+
+  static final Logger LOG = LoggerFactory.getLogger(ZmqChannelLifecycleTest.class);
+
+  @Test
+  public void t0() {
+    LOG.info("Test pooled DEALER-s: channel is reused, late replies are discarded on release.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c()).with(Props.builder().withBindAddr(inproc("t0")).build()).build();
+    SimplePool<ZmqChannel> pool =
+        new SimplePool<ZmqChannel>(1, ZmqChannelLifecycle.DEALER(c(), Props.builder().withConnectAddr(inproc("t0")).build()));
+
+    Lease<ZmqChannel> lease = pool.lease();
+    ZmqChannel client = lease.get();
+    assert client.route(emptyIdentities(), payload(), 0);
+    ZmqFrames request = server.recv(0);
+    assertNotNull(request);
+
+    // reply comes after lessee gave up waiting.
+    assert server.route(request.getIdentities(), payload(), 0);
+    waitReply(client);
+    lease.release();
+
+    Lease<ZmqChannel> next = pool.lease();
+    assertSame(client, next.get());
+    assertNull(next.get().recv(DONTWAIT)); // late reply didn't reach next lessee.
+
+    // stale lease doesn't release channel of next lessee.
+    lease.release();
+    assertNull(pool.lease());
+    next.release();
+
+    pool.destroy();
+    assert client.isDestroyed();
+  }
+
+  @Test
+  public void t1() {
+    LOG.info("Test pooled DEALER-s: destroyed channel is replaced on next lease.");
+
+    ZmqChannel.ROUTER(c()).with(Props.builder().withBindAddr(inproc("t1")).build()).build();
+    SimplePool<ZmqChannel> pool =
+        new SimplePool<ZmqChannel>(1, ZmqChannelLifecycle.DEALER(c(), Props.builder().withConnectAddr(inproc("t1")).build()));
+
+    Lease<ZmqChannel> lease = pool.lease();
+    ZmqChannel client = lease.get();
+    client.destroy();
+    lease.release();
+
+    Lease<ZmqChannel> next = pool.lease();
+    assertNotSame(client, next.get());
+    assert !next.get().isDestroyed();
+    assertEquals(0, pool.available());
+    next.release();
+    pool.destroy();
+  }
+
+  /** Waits until reply is delivered to client's socket, w/o taking it. */
+  private static void waitReply(ZmqChannel client) {
+    ZMQ.Poller poller = new ZMQ.Poller(1);
+    client.watchRecv(poller);
+    assertEquals(1, poller.poll(1000));
+    client.unregister();
+  }
+}
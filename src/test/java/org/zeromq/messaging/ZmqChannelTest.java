@@ -6,8 +6,15 @@ import org.slf4j.LoggerFactory;
 import org.zeromq.ZMQ;
 import org.zeromq.support.exception.JniExceptionHandler;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static com.google.common.collect.ImmutableList.of;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.zeromq.ZMQ.DONTWAIT;
 
@@ -368,4 +375,398 @@ public class ZmqChannelTest extends ZmqAbstractTest {
     assertEquals(0, recv3.getIdentities().size());
     assertEquals("", new String(recv3.getPayload()));
   }
+
+  @Test
+  public void t13() {
+    LOG.info("Test ByteBuffer send/recv on connected DEALER/ROUTER channels.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c())
+                                  .with(Props.builder()
+                                             .withBindAddr(bind(6677))
+                                             .withRouterMandatory()
+                                             .build())
+                                  .build();
+
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder()
+                                             .withConnectAddr(conn(6677))
+                                             .withIdentity("client".getBytes())
+                                             .build())
+                                  .build();
+
+    ByteBuffer payload = ByteBuffer.allocateDirect(64);
+    payload.put(payload()).flip();
+    assert client.route(emptyIdentities(), payload, 0);
+    assertEquals(payload().length, payload.remaining()); // payload buffer left intact.
+
+    ByteBuffer buf = ByteBuffer.allocateDirect(64);
+    ZmqFrames headers = new ZmqFrames();
+    assertEquals(payload().length, server.recv(headers, buf, 0));
+    assertEquals("client", new String(headers.getIdentities().get(0)));
+    byte[] bytes = new byte[buf.remaining()];
+    buf.get(bytes);
+    assertEquals("payload", new String(bytes));
+
+    // reply with byte[] and receive with ByteBuffer.
+    assert server.route(headers.getIdentities(), payload(), 0);
+    buf.clear();
+    assertEquals(payload().length, client.recv(null, buf, 0));
+    assertEquals(payload().length, buf.remaining());
+
+    // nothing more to receive.
+    buf.clear();
+    assertEquals(-1, client.recv(null, buf, DONTWAIT));
+  }
+
+  @Test
+  public void t14() {
+    LOG.info("Test receive into reusable frames on connected DEALER/ROUTER channels.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c())
+                                  .with(Props.builder()
+                                             .withBindAddr(bind(6677))
+                                             .withRouterMandatory()
+                                             .build())
+                                  .build();
+
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder()
+                                             .withConnectAddr(conn(6677))
+                                             .withIdentity("client".getBytes())
+                                             .build())
+                                  .build();
+
+    ZmqPooledFrames frames = new ZmqPooledFrames(Props.builder().build().payloadBufCapacity());
+
+    assert client.route(emptyIdentities(), payload(), 0);
+    assert client.route(emptyIdentities(), emptyPayload(), 0);
+
+    assert server.recv(frames, 0);
+    assertEquals("client", new String(frames.getIdentities().get(0)));
+    assert frames.payloadEquals(payload());
+    assert server.sendFrames(frames, 0);
+
+    assert server.recv(frames, 0);
+    assertEquals(0, frames.getPayloadLength());
+    assert server.sendFrames(frames, 0);
+
+    assert client.recv(frames, 0);
+    assertEquals("payload", new String(frames.getPayload()));
+    assert client.recv(frames, 0);
+    assertEquals("", new String(frames.getPayload()));
+    assert !client.recv(frames, DONTWAIT);
+    assert frames.isEmpty();
+  }
+
+  @Test
+  public void t15() {
+    LOG.info("Test payloads larger than payload buffer capacity.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c())
+                                  .with(Props.builder()
+                                             .withBindAddr(bind(6677))
+                                             .withPayloadBufCapacity(16)
+                                             .build())
+                                  .build();
+
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder()
+                                             .withConnectAddr(conn(6677))
+                                             .withPayloadBufCapacity(16)
+                                             .build())
+                                  .build();
+
+    byte[] payload = new byte[100000];
+    payload[payload.length - 1] = 42;
+    assert client.route(emptyIdentities(), payload, 0);
+    assert client.route(emptyIdentities(), payload(), 0); // small payload after big one.
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(payload.length);
+    direct.put(payload).flip();
+    assert client.route(emptyIdentities(), direct, 0);
+
+    ZmqFrames big = server.recv(0);
+    assertEquals(payload.length, big.getPayload().length);
+    assertEquals(42, big.getPayload()[payload.length - 1]);
+    assertEquals("payload", new String(server.recv(0).getPayload()));
+    assertEquals(payload.length, server.recv(0).getPayload().length);
+
+    // pooled receive delivers oversized frames as well.
+    ZmqPooledFrames frames = new ZmqPooledFrames(16);
+    assert client.route(emptyIdentities(), payload, 0);
+    assert client.route(emptyIdentities(), payload(), 0);
+    assert server.recv(frames, 0);
+    assertEquals(payload.length, frames.getPayloadLength());
+    assertEquals(42, frames.getPayload()[payload.length - 1]);
+    assert server.recv(frames, 0);
+    assert frames.payloadEquals(payload());
+  }
+
+  @Test
+  public void t16() {
+    LOG.info("Test batch send/route: batch stops at first refused message.");
+
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder()
+                                             .withConnectAddr(conn(6677))
+                                             .withHwmSend(HWM_ONE)
+                                             .build())
+                                  .build();
+
+    List<byte[]> payloads = of(payload(), payload(), payload());
+    assertEquals(1, client.routeBatch(emptyIdentities(), payloads, DONTWAIT)); // not-connected DEALER takes only one.
+    assertEquals(0, client.sendBatch(payloads, DONTWAIT));
+
+    ZmqChannel server = ZmqChannel.ROUTER(c()).with(Props.builder().withBindAddr(bind(6677)).build()).build();
+
+    assert server.recv(0) != null;
+    assertEquals(payloads.size(), client.routeBatch(emptyIdentities(), payloads, 0));
+    for (int i = 0; i < payloads.size(); i++) {
+      assertEquals("payload", new String(server.recv(0).getPayload()));
+    }
+  }
+
+  @Test
+  public void t17() {
+    LOG.info("Test channel metrics: sent/refused/received/empty receives.");
+
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder()
+                                             .withConnectAddr(conn(6677))
+                                             .withHwmSend(HWM_ONE)
+                                             .build())
+                                  .build();
+
+    assert client.route(emptyIdentities(), payload(), DONTWAIT);
+    assert !client.route(emptyIdentities(), payload(), DONTWAIT);
+    assertEquals(1, client.metrics().get(ZmqChannelMetrics.Counter.MESSAGES_SENT));
+    assertEquals(1, client.metrics().get(ZmqChannelMetrics.Counter.SEND_REFUSED));
+
+    ZmqChannel server = ZmqChannel.ROUTER(c()).with(Props.builder().withBindAddr(bind(6677)).build()).build();
+    assert server.recv(0) != null;
+    assert server.recv(DONTWAIT) == null;
+    assertEquals(1, server.metrics().get(ZmqChannelMetrics.Counter.MESSAGES_RECEIVED));
+    assertEquals(1, server.metrics().get(ZmqChannelMetrics.Counter.EMPTY_RECEIVES));
+    assertEquals(4 + payload().length, server.metrics().get(ZmqChannelMetrics.Counter.BYTES_RECEIVED));
+
+    assertEquals(1, c().metrics().get(server.metrics().key()).size());
+    server.destroy();
+    assertEquals(0, c().metrics().get(server.metrics().key()).size());
+  }
+
+  @Test
+  public void t18() {
+    LOG.info("Test back-pressure: refused messages are parked and flushed in order, overflow is dropped.");
+
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder()
+                                             .withConnectAddr(conn(6677))
+                                             .withHwmSend(HWM_ONE)
+                                             .withBackPressure(BackPressure.queue(2))
+                                             .build())
+                                  .build();
+
+    for (int i = 0; i < 3; i++) {
+      assert client.route(emptyIdentities(), ("" + i).getBytes(), DONTWAIT);
+    }
+    assert !client.route(emptyIdentities(), "3".getBytes(), DONTWAIT);
+    assert client.hasParked();
+    assertEquals(2, client.metrics().get(ZmqChannelMetrics.Counter.PARKED));
+    assertEquals(1, client.metrics().get(ZmqChannelMetrics.Counter.DROPPED));
+
+    ZmqChannel server = ZmqChannel.ROUTER(c()).with(Props.builder().withBindAddr(bind(6677)).build()).build();
+    for (int i = 0; i < 3; i++) {
+      ZmqFrames frames;
+      while ((frames = server.recv(DONTWAIT)) == null) {
+        client.flush();
+      }
+      assertEquals("" + i, new String(frames.getPayload()));
+    }
+    assert !client.hasParked();
+    assertEquals(2, client.metrics().get(ZmqChannelMetrics.Counter.UNPARKED));
+  }
+
+  @Test
+  public void t19() {
+    LOG.info("Test passing objects by reference over inproc.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c()).with(Props.builder().withBindAddr(inproc("t19")).build()).build();
+    ZmqChannel client = ZmqChannel.DEALER(c()).with(Props.builder().withConnectAddr(inproc("t19")).build()).build();
+
+    Object obj = new Object();
+    assert client.sendInprocRef(obj, DONTWAIT);
+
+    ZmqFrames frames = server.recv(0);
+    assert frames != null;
+    assertSame(obj, c().inprocRefs().take(frames.getInprocRef()));
+    assertNull(c().inprocRefs().take(frames.getInprocRef()));
+  }
+
+  @Test
+  public void t20() {
+    LOG.info("Test pure-java ring transport: DEALER/ROUTER over inproc.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c())
+                                  .with(Props.builder().withBindAddr(inproc("t20")).withRingTransport().build())
+                                  .build();
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder()
+                                             .withConnectAddr(inproc("t20"))
+                                             .withIdentity("client")
+                                             .withRingTransport()
+                                             .build())
+                                  .build();
+    ZMQ.Poller server_poller = new ZMQ.Poller(1);
+    server.watchRecv(server_poller);
+
+    assert client.route(emptyIdentities(), payload(), DONTWAIT);
+    assertEquals(1, server_poller.poll(1000));
+    assert server.canRecv();
+
+    ZmqFrames request = server.recv(DONTWAIT);
+    assertNotNull(request);
+    assertEquals("client", new String(request.getIdentities().get(0)));
+    assertEquals(new String(payload()), new String(request.getPayload()));
+    assertNull(server.recv(DONTWAIT));
+
+    assert server.route(request.getIdentities(), payload(), DONTWAIT);
+    ZmqFrames reply = client.recv(0);
+    assertNotNull(reply);
+    assertEquals(new String(payload()), new String(reply.getPayload()));
+    assertEquals(0, reply.getIdentities().size());
+  }
+
+  @Test
+  public void t21() {
+    LOG.info("Test pooled receive of frames bounded by maxMsgSize.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c())
+                                  .with(Props.builder()
+                                             .withBindAddr(bind(6677))
+                                             .withPayloadBufCapacity(16)
+                                             .withMaxMsgSize(1024)
+                                             .build())
+                                  .build();
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder().withConnectAddr(conn(6677)).build())
+                                  .build();
+
+    byte[] payload = new byte[1000];
+    payload[payload.length - 1] = 42;
+    assert client.route(emptyIdentities(), payload, 0);
+    assert client.route(emptyIdentities(), payload(), 0);
+
+    ZmqPooledFrames frames = new ZmqPooledFrames(1024);
+    assert server.recv(frames, 0);
+    assertEquals(payload.length, frames.getPayloadLength());
+    assertEquals(42, frames.getPayload()[payload.length - 1]);
+    assert server.recv(frames, 0);
+    assert frames.payloadEquals(payload());
+  }
+
+  @Test
+  public void t22() {
+    LOG.info("Test payload trailer: invisible to plain receive, available on pooled receive.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c())
+                                  .with(Props.builder().withBindAddr(bind(6677)).build())
+                                  .build();
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder().withConnectAddr(conn(6677)).build())
+                                  .build();
+
+    byte[] trailer = "tier=tcp".getBytes();
+    assert client.route(emptyIdentities(), payload(), trailer, 0);
+    assert client.route(emptyIdentities(), payload(), trailer, 0);
+    assert client.route(emptyIdentities(), payload(), 0);
+
+    ZmqFrames plain = server.recv(0);
+    assertEquals(new String(payload()), new String(plain.getPayload()));
+
+    ZmqPooledFrames frames = new ZmqPooledFrames(1024);
+    assert server.recv(frames, 0);
+    assert frames.payloadEquals(payload());
+    assertEquals("tier=tcp", new String(frames.getTrailer()));
+    assert server.recv(frames, 0);
+    assert frames.payloadEquals(payload());
+    assertEquals(0, frames.getTrailer().length);
+  }
+
+  @Test
+  public void t23() {
+    LOG.info("Test pure-java ring transport: send to full ring is refused, not blocked.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c())
+                                  .with(Props.builder()
+                                             .withBindAddr(inproc("t23"))
+                                             .withHwmRecv(1)
+                                             .withRingTransport()
+                                             .build())
+                                  .build();
+    ZmqChannel client = ZmqChannel.DEALER(c())
+                                  .with(Props.builder()
+                                             .withConnectAddr(inproc("t23"))
+                                             .withSendTimeout(100)
+                                             .withRingTransport()
+                                             .build())
+                                  .build();
+
+    assert client.route(emptyIdentities(), payload(), DONTWAIT);
+    assert !client.route(emptyIdentities(), payload(), DONTWAIT);
+    assert !client.route(emptyIdentities(), payload(), 0); // gives up after send timeout.
+
+    assertNotNull(server.recv(DONTWAIT));
+    assertNull(server.recv(DONTWAIT));
+    assert client.route(emptyIdentities(), payload(), DONTWAIT);
+    assertNotNull(server.recv(DONTWAIT));
+  }
+
+  @Test
+  public void t24() {
+    LOG.info("Test back-pressure on ROUTER: messages are parked per peer, slow peer doesn't hold up others.");
+
+    ZmqChannel server = ZmqChannel.ROUTER(c())
+                                  .with(Props.builder()
+                                             .withBindAddr(inproc("t24"))
+                                             .withRouterMandatory()
+                                             .withBackPressure(BackPressure.queue(10))
+                                             .withRingTransport()
+                                             .build())
+                                  .build();
+    ZmqChannel a = ZmqChannel.DEALER(c())
+                             .with(Props.builder()
+                                        .withConnectAddr(inproc("t24"))
+                                        .withIdentity("a")
+                                        .withHwmRecv(HWM_ONE)
+                                        .withRingTransport()
+                                        .build())
+                             .build();
+    ZmqChannel b = ZmqChannel.DEALER(c())
+                             .with(Props.builder()
+                                        .withConnectAddr(inproc("t24"))
+                                        .withIdentity("b")
+                                        .withHwmRecv(HWM_ONE)
+                                        .withRingTransport()
+                                        .build())
+                             .build();
+    ZmqFrames toA = new ZmqFrames();
+    toA.add("a".getBytes());
+    ZmqFrames toB = new ZmqFrames();
+    toB.add("b".getBytes());
+
+    assert server.route(toA, "0".getBytes(), DONTWAIT);
+    assert server.route(toA, "1".getBytes(), DONTWAIT); // a is full => parked.
+    assert server.hasParked();
+    assertEquals(1, server.metrics().get(ZmqChannelMetrics.Counter.PARKED));
+
+    // b isn't held up by parked message of a.
+    assert server.route(toB, "2".getBytes(), DONTWAIT);
+    assertEquals("2", new String(b.recv(DONTWAIT).getPayload()));
+    assertEquals(1, server.metrics().get(ZmqChannelMetrics.Counter.PARKED));
+
+    assertEquals("0", new String(a.recv(DONTWAIT).getPayload()));
+    assert server.flush();
+    assert !server.hasParked();
+    assertEquals("1", new String(a.recv(DONTWAIT).getPayload()));
+  }
 }
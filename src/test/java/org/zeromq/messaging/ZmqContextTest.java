@@ -0,0 +1,56 @@
+package org.zeromq.messaging;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ZmqContextTest {
+
+  @Test
+  public void t0() throws Exception {
+    ZmqContext ctx = new ZmqContext();
+
+    ListenableFuture<Void> future = ctx.whenBound("inproc://service");
+    assertSame(future, ctx.whenBound("inproc://service"));
+    try {
+      future.get(10, TimeUnit.MILLISECONDS);
+      fail();
+    }
+    catch (TimeoutException e) {
+      // expected: nobody has bound yet.
+    }
+
+    ctx.inprocBound("inproc://service");
+    assertTrue(future.isDone());
+    future.get(); // doesn't block.
+
+    ctx.inprocUnbound("inproc://service");
+    assertNotSame(future, ctx.whenBound("inproc://service"));
+    assertFalse(ctx.whenBound("inproc://service").isDone());
+  }
+
+  @Test
+  public void t1() throws Exception {
+    ZmqContext ctx = new ZmqContext();
+
+    ListenableFuture<Void> future = ctx.whenBound("inproc://service");
+    ctx.destroy();
+    try {
+      future.get();
+      fail();
+    }
+    catch (ExecutionException e) {
+      // expected: waiters are woken up when context is destroyed.
+      assertTrue(e.getCause() instanceof ZmqException);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package org.zeromq.messaging;
+
+import org.junit.Test;
+import org.zeromq.support.thread.IdleStrategy;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ZmqEventLoopTest extends ZmqAbstractTest {
+
+  static class CountingActor extends ZmqAbstractActor {
+
+    final AtomicInteger reacted = new AtomicInteger();
+    final AtomicBoolean destroyed = new AtomicBoolean();
+    final boolean failing;
+
+    CountingActor(boolean failing) {
+      this.failing = failing;
+    }
+
+    @Override
+    public void init() {
+    }
+
+    @Override
+    protected void react() {
+      reacted.incrementAndGet();
+      if (failing) {
+        throw new IllegalStateException("Failing actor");
+      }
+    }
+
+    @Override
+    public void destroy() {
+      destroyed.set(true);
+      super.destroy();
+    }
+  }
+
+  @Test
+  public void t0() throws Exception {
+    // failing actor is destroyed, its neighbour keeps running.
+    ZmqEventLoop loop = new ZmqEventLoop(10, IdleStrategy.blocking());
+    loop.init();
+    CountingActor bad = new CountingActor(true);
+    CountingActor good = new CountingActor(false);
+    loop.register(bad);
+    loop.register(good);
+    try {
+      for (int i = 0; i < 3; i++) {
+        loop.exec();
+      }
+      assertEquals(1, bad.reacted.get());
+      assertTrue(bad.destroyed.get());
+      assertEquals(3, good.reacted.get());
+      assertFalse(good.destroyed.get());
+      assertEquals(1, loop.actorNum());
+    }
+    finally {
+      loop.destroy();
+    }
+    assertTrue(good.destroyed.get());
+  }
+
+  @Test
+  public void t1() throws Exception {
+    // blocking back-pressure would stall the loop => actor having it is rejected.
+    ZmqEventLoop loop = new ZmqEventLoop(10, IdleStrategy.blocking());
+    loop.init();
+    CountingActor blocking = new CountingActor(false) {
+      @Override
+      public void init() {
+        put("dealer", ZmqChannel.DEALER(ctx)
+                                .with(Props.builder()
+                                           .withConnectAddr(inproc("t1"))
+                                           .withBackPressure(BackPressure.retry(5, 10))
+                                           .build())
+                                .build());
+      }
+    };
+    blocking.setCtx(c());
+    loop.register(blocking);
+    try {
+      loop.exec();
+      assertEquals(0, blocking.reacted.get());
+      assertTrue(blocking.destroyed.get());
+      assertEquals(0, loop.actorNum());
+    }
+    finally {
+      loop.destroy();
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package org.zeromq.messaging;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.zeromq.messaging.ZmqChannelMetrics.Counter.BYTES_SENT;
+import static org.zeromq.messaging.ZmqChannelMetrics.Counter.MESSAGES_SENT;
+import static org.zeromq.messaging.ZmqChannelMetrics.Counter.SEND_REFUSED;
+
+public class ZmqMetricsRegistryTest {
+
+  @Test
+  public void t0() {
+    ZmqMetricsRegistry registry = new ZmqMetricsRegistry();
+
+    ZmqChannelMetrics m0 = new ZmqChannelMetrics("DEALER bind=[] connect=[tcp://localhost:6677]");
+    ZmqChannelMetrics m1 = new ZmqChannelMetrics("DEALER bind=[] connect=[tcp://localhost:6677]");
+    registry.register(m0);
+    registry.register(m1);
+
+    m0.onSent(10);
+    m0.onRefused();
+    m1.onSent(2, 20);
+    assertEquals(1, m0.get(MESSAGES_SENT));
+    assertEquals(1, m0.get(SEND_REFUSED));
+    assertEquals(20, m1.get(BYTES_SENT));
+
+    Map<String, Long> sum = registry.snapshot().get(m0.key());
+    assertEquals(3, (long) sum.get("messages_sent"));
+    assertEquals(30, (long) sum.get("bytes_sent"));
+    assertEquals(1, (long) sum.get("send_refused"));
+    assertEquals(2, registry.get(m0.key()).size());
+
+    registry.unregister(m0);
+    registry.unregister(m1);
+    assertTrue(registry.snapshot().isEmpty());
+  }
+}
@@ -0,0 +1,90 @@
+package org.zeromq.messaging.service;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConsistentHashRoutingTest {
+
+  static final int KEYS = 10000;
+
+  @Test
+  public void t0() {
+    ConsistentHashRouting routing = new ConsistentHashRouting();
+    assertNull(routing.get("c0".getBytes(), null));
+    for (int i = 0; i < 4; i++) {
+      routing.put(("s" + i).getBytes(), null);
+    }
+    routing.put("s0".getBytes(), null); // heartbeat of known peer.
+    assertEquals(4, routing.available());
+
+    // same client => same slave; load is spread.
+    Map<String, Integer> load = new HashMap<String, Integer>();
+    for (int i = 0; i < KEYS; i++) {
+      byte[] client = ("client" + i).getBytes();
+      byte[] slave = routing.get(client, null);
+      assertArrayEquals(slave, routing.get(client, null));
+      String s = new String(slave);
+      load.put(s, load.containsKey(s) ? load.get(s) + 1 : 1);
+    }
+    for (int i = 0; i < 4; i++) {
+      int n = load.get("s" + i);
+      assertTrue("s" + i + " load=" + n, n > KEYS / 4 * 0.7 && n < KEYS / 4 * 1.3);
+    }
+  }
+
+  @Test
+  public void t1() {
+    ConsistentHashRouting routing = new ConsistentHashRouting();
+    for (int i = 0; i < 4; i++) {
+      routing.put(("s" + i).getBytes(), null);
+    }
+    String[] before = new String[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      before[i] = new String(routing.get(("client" + i).getBytes(), null));
+    }
+
+    // slave leaves: only its keys move.
+    routing.remove("s3".getBytes());
+    int moved = 0;
+    for (int i = 0; i < KEYS; i++) {
+      String after = new String(routing.get(("client" + i).getBytes(), null));
+      assertFalse(after.equals("s3"));
+      if (!after.equals(before[i])) {
+        assertEquals("s3", before[i]);
+        moved++;
+      }
+    }
+    assertTrue("moved=" + moved, moved < KEYS / 4 * 1.3);
+
+    // slave joins: only keys going to it move.
+    routing.put("s3".getBytes(), null);
+    for (int i = 0; i < KEYS; i++) {
+      assertEquals(before[i], new String(routing.get(("client" + i).getBytes(), null)));
+    }
+  }
+
+  @Test
+  public void t2() {
+    // route by payload key instead of client.
+    ConsistentHashRouting routing = new ConsistentHashRouting(100, new KeyExtractor() {
+      @Override
+      public byte[] key(byte[] root, byte[] payload) {
+        return payload;
+      }
+    });
+    routing.put("s0".getBytes(), null);
+    routing.put("s1".getBytes(), null);
+    byte[] slave = routing.get("c0".getBytes(), "key".getBytes());
+    for (int i = 0; i < 100; i++) {
+      assertArrayEquals(slave, routing.get(("c" + i).getBytes(), "key".getBytes()));
+    }
+  }
+}
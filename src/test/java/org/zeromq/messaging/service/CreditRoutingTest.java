@@ -0,0 +1,94 @@
+package org.zeromq.messaging.service;
+
+import org.junit.Test;
+import org.zeromq.messaging.ZmqFrames;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CreditRoutingTest {
+
+  @Test
+  public void t0() {
+    CreditRouting routing = new CreditRouting(16);
+    routing.put("s0".getBytes(), Heartbeat.attributes(Heartbeat.Tier.TCP, 2));
+    routing.put("s1".getBytes(), "ping".getBytes()); // no credit in PING => default one.
+    assertEquals(2, routing.credit("s0".getBytes()));
+    assertEquals(16, routing.credit("s1".getBytes()));
+    assertEquals(2, routing.available());
+
+    routing.remove("s1".getBytes());
+    assertEquals(1, routing.available());
+
+    assertEquals("s0", new String(routing.get("c0".getBytes(), null)));
+    assertEquals("s0", new String(routing.get("c1".getBytes(), null)));
+    // credit is over.
+    assertEquals(0, routing.available());
+    assertNull(routing.get("c2".getBytes(), null));
+
+    // reply gives credit back.
+    routing.onReply("s0".getBytes(), null);
+    assertEquals(1, routing.credit("s0".getBytes()));
+    assertEquals(1, routing.available());
+
+    // PING re-grants window, outstanding requests still count.
+    routing.put("s0".getBytes(), Heartbeat.attributes(Heartbeat.Tier.TCP, 4));
+    assertEquals(3, routing.credit("s0".getBytes()));
+  }
+
+  @Test
+  public void t1() {
+    // requests of the same root at two slaves: reply gives credit back to the slave which sent it.
+    CreditRouting routing = new CreditRouting(1);
+    routing.put("s0".getBytes(), null);
+    routing.put("s1".getBytes(), null);
+    assertEquals("s0", new String(routing.get("c0".getBytes(), null)));
+    assertEquals("s1", new String(routing.get("c0".getBytes(), null)));
+    assertEquals(0, routing.available());
+
+    routing.onReply("s1".getBytes(), null);
+    assertEquals(0, routing.credit("s0".getBytes()));
+    assertEquals(1, routing.credit("s1".getBytes()));
+    assertEquals("s1", new String(routing.get("c0".getBytes(), null)));
+
+    routing.onReply("unknown".getBytes(), null);
+    assertEquals(0, routing.available());
+  }
+
+  @Test
+  public void t2() throws Exception {
+    Backlog backlog = new Backlog(3);
+    assertTrue(backlog.add(new ZmqFrames("c0".getBytes()), "r0".getBytes()));
+    assertTrue(backlog.add(new ZmqFrames("c1".getBytes()), "r1".getBytes()));
+    assertTrue(backlog.add(new ZmqFrames("c2".getBytes()), "r2".getBytes()));
+    assertFalse(backlog.add(new ZmqFrames("c3".getBytes()), "r3".getBytes())); // full.
+
+    // processor routes two requests, defers the third one again.
+    final List<String> routed = new ArrayList<String>();
+    AbstractProcessor processor = new AbstractProcessor() {
+      @Override
+      public void onRoot() {
+        if (routed.size() < 2) {
+          routed.add(new String(payload));
+        }
+        else {
+          defer();
+        }
+      }
+    };
+    AbstractProcessor.init(processor, backlog, null, null);
+    assertEquals(2, backlog.replay(processor));
+    assertEquals("[r0, r1]", routed.toString());
+    assertEquals(1, backlog.size());
+
+    routed.clear();
+    assertEquals(1, backlog.replay(processor));
+    assertEquals("[r2]", routed.toString());
+    assertTrue(backlog.isEmpty());
+  }
+}
@@ -0,0 +1,99 @@
+package org.zeromq.messaging.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LeastOutstandingRoutingTest {
+
+  @Test
+  public void t0() {
+    LeastOutstandingRouting routing = new LeastOutstandingRouting();
+    assertNull(routing.get("c0".getBytes(), null));
+    routing.put("s0".getBytes(), null);
+    routing.put("s1".getBytes(), null);
+
+    // requests spread by outstanding count.
+    String first = new String(routing.get("c0".getBytes(), null));
+    String second = new String(routing.get("c1".getBytes(), null));
+    assertEquals(1, routing.outstanding("s0".getBytes()));
+    assertEquals(1, routing.outstanding("s1".getBytes()));
+
+    // reply decrements the slave which sent it => it's the least loaded one now.
+    routing.onReply(first.getBytes(), null);
+    assertEquals(0, routing.outstanding(first.getBytes()));
+    assertEquals(first, new String(routing.get("c2".getBytes(), null)));
+
+    routing.onReply(second.getBytes(), null);
+    routing.onReply(first.getBytes(), null);
+    routing.onReply("unknown".getBytes(), null);
+    assertEquals(0, routing.outstanding(first.getBytes()));
+    assertEquals(0, routing.outstanding(second.getBytes()));
+  }
+
+  @Test
+  public void t1() throws Exception {
+    LeastOutstandingRouting routing = new LeastOutstandingRouting();
+    routing.put("slow".getBytes(), null);
+    routing.put("fast".getBytes(), null);
+
+    // teach latencies: slow replies in ~20ms, fast replies at once.
+    for (int i = 0; i < 5; i++) {
+      byte[] slave = routing.get("c".getBytes(), null);
+      if (new String(slave).equals("slow")) {
+        Thread.sleep(20);
+      }
+      routing.onReply(slave, null);
+    }
+
+    // fast one takes load until its outstanding outweighs latency difference.
+    for (int i = 0; i < 10; i++) {
+      assertEquals("fast", new String(routing.get(("c" + i).getBytes(), null)));
+    }
+    assertEquals(0, routing.outstanding("slow".getBytes()));
+    assertEquals(10, routing.outstanding("fast".getBytes()));
+  }
+
+  @Test
+  public void t2() {
+    // large set: power of two choices never picks removed peer, outstanding stays balanced.
+    LeastOutstandingRouting routing = new LeastOutstandingRouting(2, 30000);
+    for (int i = 0; i < 16; i++) {
+      routing.put(("s" + i).getBytes(), null);
+    }
+    routing.remove("s0".getBytes());
+    assertEquals(15, routing.available());
+    assertEquals(-1, routing.outstanding("s0".getBytes()));
+
+    for (int i = 0; i < 1500; i++) {
+      routing.get(("c" + i).getBytes(), null);
+    }
+    for (int i = 1; i < 16; i++) {
+      int outstanding = routing.outstanding(("s" + i).getBytes());
+      assertEquals("s" + i + " outstanding=" + outstanding, 100, outstanding, 30);
+    }
+  }
+
+  @Test
+  public void t3() throws Exception {
+    // the same root has requests at slow and fast slave: fast reply is accounted on fast slave only.
+    LeastOutstandingRouting routing = new LeastOutstandingRouting();
+    routing.put("slow".getBytes(), null);
+    routing.put("fast".getBytes(), null);
+    byte[] a = routing.get("c".getBytes(), null);
+    byte[] b = routing.get("c".getBytes(), null);
+    byte[] fast = new String(a).equals("fast") ? a : b;
+    byte[] slow = fast == a ? b : a;
+
+    routing.onReply(fast, null);
+    assertEquals(1, routing.outstanding(slow));
+    assertEquals(0, routing.outstanding(fast));
+
+    Thread.sleep(20);
+    routing.onReply(slow, null);
+    // slow slave's latency is its own: fast one is preferred.
+    assertEquals("fast", new String(routing.get("c".getBytes(), null)));
+    assertEquals("fast", new String(routing.get("c".getBytes(), null)));
+  }
+}
@@ -0,0 +1,65 @@
+package org.zeromq.messaging.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LivenessTest {
+
+  static class TestRouting implements Routing {
+
+    @Override
+    public void put(byte[] identity, byte[] payload) {
+    }
+
+    @Override
+    public byte[] get(byte[] identity, byte[] payload) {
+      return null;
+    }
+
+    @Override
+    public int available() {
+      return 0;
+    }
+  }
+
+  static class EvictableTestRouting extends TestRouting implements Evictable {
+
+    final List<String> removed = new ArrayList<String>();
+
+    @Override
+    public void remove(byte[] identity) {
+      removed.add(new String(identity));
+    }
+  }
+
+  @Test
+  public void t0() {
+    EvictableTestRouting routing = new EvictableTestRouting();
+
+    Liveness liveness = new Liveness();
+    liveness.touch("s0".getBytes(), 100);
+    liveness.touch("s1".getBytes(), 100);
+    liveness.touch("s1".getBytes(), 200); // s1 has sent heartbeat again.
+
+    assertEquals(0, liveness.evict(100, routing));
+    assertEquals(1, liveness.evict(150, routing));
+    assertEquals("[s0]", routing.removed.toString());
+
+    assertEquals(1, liveness.evict(300, routing));
+    assertEquals("[s0, s1]", routing.removed.toString());
+    assertEquals(0, liveness.evict(300, routing));
+  }
+
+  @Test
+  public void t1() {
+    // routing which isn't evictable: peers are dropped from liveness table only.
+    Liveness liveness = new Liveness();
+    liveness.touch("s0".getBytes(), 100);
+    assertEquals(1, liveness.evict(150, new TestRouting()));
+    assertEquals(0, liveness.evict(150, new TestRouting()));
+  }
+}
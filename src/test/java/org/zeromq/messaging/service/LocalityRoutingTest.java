@@ -0,0 +1,75 @@
+package org.zeromq.messaging.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LocalityRoutingTest {
+
+  @Test
+  public void t0() {
+    assertEquals(Heartbeat.Tier.INPROC, Heartbeat.tier("inproc://gateway"));
+    assertEquals(Heartbeat.Tier.IPC, Heartbeat.tier("ipc://gateway"));
+    assertEquals(Heartbeat.Tier.TCP, Heartbeat.tier("tcp://localhost:5555"));
+    assertEquals(Heartbeat.Tier.TCP, Heartbeat.tier("epgm://eth0;239.192.1.1:5555"));
+
+    // slave connected over different transports advertises the most expensive one.
+    assertEquals(Heartbeat.Tier.IPC, Heartbeat.tier(Arrays.asList("inproc://gateway", "ipc://gateway")));
+    assertEquals(Heartbeat.Tier.TCP, Heartbeat.tier(Arrays.asList("tcp://localhost:5555", "inproc://gateway")));
+    assertEquals(Heartbeat.Tier.TCP, Heartbeat.tier(Collections.<String>emptyList()));
+
+    assertEquals(Heartbeat.Tier.IPC, Heartbeat.tier(Heartbeat.attributes(Heartbeat.Tier.IPC, 4)));
+    assertEquals(4, Heartbeat.credit(Heartbeat.attributes(Heartbeat.Tier.IPC, 4)));
+    assertEquals(Heartbeat.Tier.TCP, Heartbeat.tier(new byte[0]));
+    assertEquals(0, Heartbeat.credit(new byte[0]));
+  }
+
+  @Test
+  public void t1() {
+    LocalityRouting routing = new LocalityRouting(2, 30000);
+    routing.put("tcp".getBytes(), new byte[0]);
+    routing.put("ipc".getBytes(), Heartbeat.attributes(Heartbeat.Tier.IPC));
+    routing.put("inproc".getBytes(), Heartbeat.attributes(Heartbeat.Tier.INPROC));
+    assertEquals(3, routing.available());
+    assertEquals(1, routing.available(Heartbeat.Tier.INPROC));
+
+    // inproc slave takes requests until it's saturated, then ipc one, then tcp one.
+    assertEquals("inproc", new String(routing.get("c0".getBytes(), null)));
+    assertEquals("inproc", new String(routing.get("c1".getBytes(), null)));
+    assertEquals("ipc", new String(routing.get("c2".getBytes(), null)));
+    assertEquals("ipc", new String(routing.get("c3".getBytes(), null)));
+    assertEquals("tcp", new String(routing.get("c4".getBytes(), null)));
+
+    // reply from tcp slave doesn't unload nearer tiers.
+    routing.onReply("tcp".getBytes(), null);
+    assertEquals("tcp", new String(routing.get("c5".getBytes(), null)));
+
+    // reply from inproc slave => it's back in business.
+    routing.onReply("inproc".getBytes(), null);
+    assertEquals("inproc", new String(routing.get("c6".getBytes(), null)));
+
+    // everything saturated => overflow goes to the nearest tier.
+    routing.get("c7".getBytes(), null);
+    assertEquals("inproc", new String(routing.get("c8".getBytes(), null)));
+  }
+
+  @Test
+  public void t2() {
+    LocalityRouting routing = new LocalityRouting(2, 30000);
+    routing.put("s0".getBytes(), new byte[0]);
+    assertEquals(1, routing.available(Heartbeat.Tier.TCP));
+
+    // slave re-announces itself with tier => moves to nearer tier.
+    routing.put("s0".getBytes(), Heartbeat.attributes(Heartbeat.Tier.INPROC));
+    assertEquals(0, routing.available(Heartbeat.Tier.TCP));
+    assertEquals(1, routing.available(Heartbeat.Tier.INPROC));
+
+    routing.remove("s0".getBytes());
+    assertEquals(0, routing.available());
+    assertNull(routing.get("c0".getBytes(), null));
+  }
+}
@@ -0,0 +1,168 @@
+package org.zeromq.messaging.service;
+
+import org.junit.Test;
+import org.zeromq.messaging.ZmqFrames;
+import org.zeromq.support.ObjectBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessorPoolTest {
+
+  /** Collects tasks handed back to "socket thread". */
+  static class Mailbox implements Executor {
+
+    final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+  }
+
+  @Test
+  public void t0() throws Exception {
+    // messages are processed in parallel, on pool threads.
+    final int n = 4;
+    final CountDownLatch barrier = new CountDownLatch(n);
+    final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+    ProcessorPool pool = new ProcessorPool(new ObjectBuilder<Processor>() {
+      @Override
+      public Processor build() {
+        return new AbstractProcessor() {
+          @Override
+          public void onRoot() {
+            // every thread waits for the others: passes only if n messages are processed at once.
+            barrier.countDown();
+            try {
+              if (barrier.await(1, TimeUnit.SECONDS)) {
+                threads.add(Thread.currentThread().getName());
+              }
+            }
+            catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            route();
+          }
+        };
+      }
+    }, n, ProcessorPool.DEFAULT_QUEUE_CAPACITY);
+    Mailbox mailbox = new Mailbox();
+    pool.init(null, new Routing[2], new Object[2], null, mailbox, null, "test-processor-%d");
+    try {
+      for (int i = 0; i < n; i++) {
+        pool.submit(ProcessorPool.Event.ROOT, new ZmqFrames("c".getBytes()), ("r" + i).getBytes());
+      }
+      assertTrue(barrier.await(1, TimeUnit.SECONDS));
+      while (pool.pending() > 0) {
+        TimeUnit.MILLISECONDS.sleep(1);
+      }
+      assertEquals(n, threads.size());
+      // routing is handed back, not done on pool thread.
+      assertEquals(n, mailbox.tasks.size());
+    }
+    finally {
+      pool.destroy();
+    }
+  }
+
+  @Test
+  public void t1() throws Exception {
+    // defer() off socket thread is handed back too, local processor defers in place.
+    ProcessorPool pool = new ProcessorPool(new ObjectBuilder<Processor>() {
+      @Override
+      public Processor build() {
+        return new AbstractProcessor() {
+          @Override
+          public void onRoot() {
+            defer();
+          }
+        };
+      }
+    }, 1, ProcessorPool.DEFAULT_QUEUE_CAPACITY);
+    Mailbox mailbox = new Mailbox();
+    Backlog backlog = new Backlog(16);
+    pool.init(null, new Routing[2], new Object[2], backlog, mailbox, null, "test-processor-%d");
+    try {
+      pool.submit(ProcessorPool.Event.ROOT, new ZmqFrames("c".getBytes()), "r0".getBytes());
+      while (pool.pending() > 0) {
+        TimeUnit.MILLISECONDS.sleep(1);
+      }
+      assertTrue(backlog.isEmpty());
+      assertEquals(1, mailbox.tasks.size());
+      mailbox.tasks.poll().run();
+      assertEquals(1, backlog.size());
+
+      pool.local().set(new ZmqFrames("c".getBytes())).set("r1".getBytes()).onRoot();
+      assertEquals(2, backlog.size());
+      assertTrue(mailbox.tasks.isEmpty());
+    }
+    finally {
+      pool.destroy();
+    }
+  }
+
+  @Test
+  public void t2() throws Exception {
+    // lanes: order is kept per client, clients are spread over lanes.
+    final int clients = 8;
+    final int n = 200;
+    final Map<String, List<Integer>> processed = new ConcurrentHashMap<String, List<Integer>>();
+    final Map<String, String> lanes = new ConcurrentHashMap<String, String>();
+    ProcessorPool pool = new ProcessorPool(new ObjectBuilder<Processor>() {
+      @Override
+      public Processor build() {
+        return new AbstractProcessor() {
+          @Override
+          public void onRoot() {
+            String client = new String(root());
+            processed.get(client).add(Integer.parseInt(new String(payload)));
+            String thread = Thread.currentThread().getName();
+            String lane = lanes.put(client, thread);
+            if (lane != null && !lane.equals(thread)) {
+              lanes.put(client, "moved"); // client must stick to its lane.
+            }
+          }
+        };
+      }
+    }, 4, 16, KeyExtractor.ROOT);
+    pool.init(null, new Routing[2], new Object[2], null, new Mailbox(), null, "test-lane-%d");
+    try {
+      for (int c = 0; c < clients; c++) {
+        processed.put("c" + c, Collections.synchronizedList(new ArrayList<Integer>()));
+      }
+      for (int i = 0; i < n; i++) {
+        for (int c = 0; c < clients; c++) {
+          pool.submit(ProcessorPool.Event.ROOT, new ZmqFrames(("c" + c).getBytes()), ("" + i).getBytes());
+        }
+      }
+      while (pool.pending() > 0) {
+        TimeUnit.MILLISECONDS.sleep(1);
+      }
+      for (int c = 0; c < clients; c++) {
+        List<Integer> seq = processed.get("c" + c);
+        assertEquals(n, seq.size());
+        for (int i = 0; i < n; i++) {
+          assertEquals(i, (int) seq.get(i));
+        }
+      }
+      assertTrue(!lanes.containsValue("moved"));
+      assertTrue(new HashSet<String>(lanes.values()).size() > 1);
+    }
+    finally {
+      pool.destroy();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package org.zeromq.messaging.service;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RoundRobinRoutingTest {
+
+  @Test
+  public void t0() {
+    RoundRobinRouting routing = new RoundRobinRouting();
+    assertNull(routing.get(null, null));
+
+    routing.put("s0".getBytes(), null);
+    routing.put("s1".getBytes(), null);
+    routing.put("s2".getBytes(), null);
+    routing.put("s1".getBytes(), null); // heartbeat of known peer.
+    assertEquals(3, routing.available());
+
+    Map<String, Integer> hits = new HashMap<String, Integer>();
+    for (int i = 0; i < 300; i++) {
+      String peer = new String(routing.get(null, null));
+      hits.put(peer, hits.containsKey(peer) ? hits.get(peer) + 1 : 1);
+    }
+    assertEquals(100, (int) hits.get("s0"));
+    assertEquals(100, (int) hits.get("s1"));
+    assertEquals(100, (int) hits.get("s2"));
+  }
+
+  @Test
+  public void t1() {
+    RoundRobinRouting routing = new RoundRobinRouting();
+    routing.put("s0".getBytes(), null);
+    routing.put("s1".getBytes(), null);
+
+    routing.remove("s0".getBytes());
+    routing.remove("unknown".getBytes());
+    assertEquals(1, routing.available());
+    for (int i = 0; i < 10; i++) {
+      assertEquals("s1", new String(routing.get(null, null)));
+    }
+
+    routing.remove("s1".getBytes());
+    assertEquals(0, routing.available());
+    assertNull(routing.get(null, null));
+  }
+}
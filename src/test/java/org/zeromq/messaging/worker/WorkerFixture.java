@@ -3,15 +3,28 @@ package org.zeromq.messaging.worker;
 import org.zeromq.messaging.BaseFixture;
 import org.zeromq.messaging.Props;
 import org.zeromq.messaging.ZmqContext;
+import org.zeromq.messaging.ZmqEventLoopGroup;
 import org.zeromq.messaging.service.Processor;
 import org.zeromq.messaging.service.Routing;
 import org.zeromq.messaging.service.Worker;
+import org.zeromq.support.ObjectBuilder;
 import org.zeromq.support.thread.ZmqProcess;
 
 class WorkerFixture extends BaseFixture {
 
+  private final ZmqEventLoopGroup group;
+
   WorkerFixture(ZmqContext ctx) {
+    this(ctx, null);
+  }
+
+  /** Workers will be run by given (initialized) group instead of thread per worker. */
+  WorkerFixture(ZmqContext ctx, ZmqEventLoopGroup group) {
     super(ctx);
+    this.group = group;
+    if (group != null) {
+      with(group);
+    }
   }
 
   void master(Props router, Props master, Processor processor) {
@@ -34,6 +47,11 @@ class WorkerFixture extends BaseFixture {
     worker(router, master, slave, new FairRouting(), new FairRouting(), processor);
   }
 
+  /** Master which processes messages on {@code threadNum} threads, see {@link Worker.Builder#withProcessorPool}. */
+  void master(Props router, Props master, ObjectBuilder<? extends Processor> processors, int threadNum) {
+    run(builder(router, master, null, null, new FairRouting()).withProcessorPool(processors, threadNum).build());
+  }
+
   void worker(Props router,
               Props master,
               Props slave,
@@ -41,19 +59,31 @@ class WorkerFixture extends BaseFixture {
               Routing slaveRouting,
               Processor processor) {
 
-    with(ZmqProcess.builder()
-                   .with(Worker.builder()
-                               .with(ctx)
-                               .withPollTimeout(100)
-                               .withRouter(router)
-                               .withMaster(master)
-                               .withSlave(slave)
-                               .withMasterRouting(masterRouting)
-                               .withSlaveRouting(slaveRouting)
-                               .with(processor)
-                               .build()
-                   )
-                   .build()
-    );
+    run(builder(router, master, slave, masterRouting, slaveRouting).with(processor).build());
+  }
+
+  private Worker.Builder builder(Props router,
+                                 Props master,
+                                 Props slave,
+                                 Routing masterRouting,
+                                 Routing slaveRouting) {
+    return Worker.builder()
+                 .with(ctx)
+                 .withPollTimeout(100)
+                 .withHeartbeatInterval(100)
+                 .withRouter(router)
+                 .withMaster(master)
+                 .withSlave(slave)
+                 .withMasterRouting(masterRouting)
+                 .withSlaveRouting(slaveRouting);
+  }
+
+  private void run(Worker worker) {
+    if (group != null) {
+      group.register(worker);
+    }
+    else {
+      with(ZmqProcess.builder().with(worker).build());
+    }
   }
 }
@@ -6,9 +6,16 @@ import org.slf4j.LoggerFactory;
 import org.zeromq.messaging.Props;
 import org.zeromq.messaging.ZmqAbstractTest;
 import org.zeromq.messaging.ZmqChannel;
+import org.zeromq.messaging.ZmqEventLoopGroup;
 import org.zeromq.messaging.ZmqFrames;
 import org.zeromq.messaging.service.AbstractProcessor;
 import org.zeromq.messaging.service.Processor;
+import org.zeromq.messaging.service.Reply;
+import org.zeromq.support.ObjectBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.collect.ImmutableList.of;
 import static junit.framework.Assert.assertNull;
@@ -346,6 +353,145 @@ public class WorkerTest extends ZmqAbstractTest {
     }
   }
 
+  @Test
+  public void t7() throws InterruptedException {
+    LOGGER.info("1 master <-*-> N slaves on 2 event loops: master send 'hello', and slaves reply 'world'.");
+
+    ZmqEventLoopGroup group = ZmqEventLoopGroup.builder().withLoopNum(2).withPollTimeout(100).build();
+    group.init();
+    WorkerFixture f = new WorkerFixture(c(), group);
+
+    f.master(Props.builder().withBindAddr(inproc("master@router")).build(),
+             bind(inproc("master")).build(),
+             new AbstractProcessor() {
+               @Override
+               public void onRoot() {
+                 set(nextSlaveRoute()).route();
+               }
+
+               @Override
+               public void onSlave() {
+                 route();
+               }
+             });
+
+    f.slave(Props.builder().withConnectAddr(inproc("master")).build(),
+            conn(inproc("master@router")).build(),
+            t6SlaveProcessor());
+    f.slave(Props.builder().withConnectAddr(inproc("master")).build(),
+            conn(inproc("master@router")).build(),
+            t6SlaveProcessor());
+    f.slave(Props.builder().withConnectAddr(inproc("master")).build(),
+            conn(inproc("master@router")).build(),
+            t6SlaveProcessor());
+
+    f.init();
+    LOGGER.info("Wait a second ...");
+    waitSec(); // wait a second.
+    try {
+      ZmqChannel channel = client(inproc("master@router"));
+      channel.route(emptyIdentities(), hello(), 0);
+      channel.route(emptyIdentities(), hello(), 0);
+      channel.route(emptyIdentities(), hello(), 0);
+      assertPayload("world", channel.recv(0));
+      assertPayload("world", channel.recv(0));
+      assertPayload("world", channel.recv(0));
+    }
+    finally {
+      f.destroy();
+    }
+  }
+
+  @Test
+  public void t8() throws InterruptedException {
+    LOGGER.info("master with processor pool <-*-> 2 slaves: master processes on 4 threads, slaves reply 'world'.");
+
+    WorkerFixture f = new WorkerFixture(c());
+
+    f.master(Props.builder().withBindAddr(inproc("master@router")).build(),
+             bind(inproc("master")).build(),
+             new ObjectBuilder<Processor>() {
+               @Override
+               public Processor build() {
+                 return t5MasterProcessor();
+               }
+             },
+             4);
+
+    f.slave(Props.builder().withConnectAddr(inproc("master")).build(),
+            conn(inproc("master@router")).build(),
+            t6SlaveProcessor());
+    f.slave(Props.builder().withConnectAddr(inproc("master")).build(),
+            conn(inproc("master@router")).build(),
+            t6SlaveProcessor());
+
+    f.init();
+    LOGGER.info("Wait a second ...");
+    waitSec(); // wait a second.
+    try {
+      ZmqChannel channel = client(inproc("master@router"));
+      for (int i = 0; i < 10; i++) {
+        channel.route(emptyIdentities(), hello(), 0);
+      }
+      for (int i = 0; i < 10; i++) {
+        assertPayload("world", channel.recv(0));
+      }
+    }
+    finally {
+      f.destroy();
+    }
+  }
+
+  @Test
+  public void t9() throws InterruptedException {
+    LOGGER.info("master <-*-> slave: slave replies 'world' asynchronously, from other thread.");
+
+    WorkerFixture f = new WorkerFixture(c());
+    final ExecutorService storage = Executors.newFixedThreadPool(2);
+
+    f.master(Props.builder().withBindAddr(inproc("master@router")).build(),
+             bind(inproc("master")).build(),
+             t5MasterProcessor());
+
+    f.slave(Props.builder().withConnectAddr(inproc("master")).build(),
+            conn(inproc("master@router")).build(),
+            new AbstractProcessor() {
+              @Override
+              public void onMaster() {
+                final Reply reply = reply();
+                storage.execute(new Runnable() {
+                  @Override
+                  public void run() {
+                    try {
+                      TimeUnit.MILLISECONDS.sleep(10); // slow dependency.
+                    }
+                    catch (InterruptedException e) {
+                      Thread.currentThread().interrupt();
+                    }
+                    reply.complete(world());
+                  }
+                });
+              }
+            });
+
+    f.init();
+    LOGGER.info("Wait a second ...");
+    waitSec(); // wait a second.
+    try {
+      ZmqChannel channel = client(inproc("master@router"));
+      for (int i = 0; i < 100; i++) {
+        channel.route(emptyIdentities(), hello(), 0);
+      }
+      for (int i = 0; i < 100; i++) {
+        assertPayload("world", channel.recv(0));
+      }
+    }
+    finally {
+      f.destroy();
+      storage.shutdownNow();
+    }
+  }
+
   private Processor t6SlaveProcessor() {
     return new AbstractProcessor() {
       @Override
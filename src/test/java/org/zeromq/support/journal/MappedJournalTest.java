@@ -0,0 +1,120 @@
+package org.zeromq.support.journal;
+
+import org.junit.Test;
+import org.zeromq.messaging.ZmqFrames;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedJournalTest {
+
+  @Test
+  public void t0() throws Exception {
+    File dir = Files.createTempDirectory("journal-test").toFile();
+    MappedJournal journal = new MappedJournal(dir, MappedJournal.MIN_SEGMENT_SIZE);
+    try {
+      assertNull(journal.peek());
+
+      // 1000 records of ~100 bytes => several segments.
+      for (int i = 0; i < 1000; i++) {
+        journal.append(new ZmqFrames("id".getBytes(), ZmqFrames.EMPTY_FRAME, ("msg" + i + new String(new byte[80])).getBytes()));
+      }
+      assertEquals(1000, journal.depth());
+      assertTrue(dir.list().length > 1);
+
+      for (int i = 0; i < 1000; i++) {
+        ZmqFrames frames = journal.peek();
+        assertEquals(3, frames.size());
+        assertTrue(new String(frames.get(2)).startsWith("msg" + i));
+        journal.remove();
+      }
+      assertTrue(journal.isEmpty());
+      assertEquals(0, journal.bytes());
+      assertEquals(1, dir.list().length); // drained segments are deleted, the last one is reused.
+    }
+    finally {
+      journal.destroy();
+    }
+    assertFalse(dir.exists());
+  }
+
+  @Test
+  public void t1() throws Exception {
+    File dir = Files.createTempDirectory("journal-test").toFile();
+    MappedJournal journal = new MappedJournal(dir, MappedJournal.MIN_SEGMENT_SIZE);
+    try {
+      byte[] large = new byte[3 * MappedJournal.MIN_SEGMENT_SIZE];
+      journal.append(new ZmqFrames("small".getBytes()));
+      journal.append(new ZmqFrames(large)); // doesn't fit segment => gets its own one.
+      journal.append(new ZmqFrames("small".getBytes()));
+
+      assertEquals("small", new String(journal.peek().get(0)));
+      journal.remove();
+      assertEquals(large.length, journal.peek().get(0).length);
+      journal.remove();
+      assertEquals("small", new String(journal.peek().get(0)));
+      journal.remove();
+      assertNull(journal.peek());
+    }
+    finally {
+      journal.destroy();
+    }
+  }
+
+  @Test
+  public void t2() throws Exception {
+    File dir = Files.createTempDirectory("journal-test").toFile();
+    MappedJournal journal = new MappedJournal(dir, MappedJournal.MIN_SEGMENT_SIZE, 2 * MappedJournal.MIN_SEGMENT_SIZE);
+    try {
+      byte[] frame = new byte[1000];
+      int appended = 0;
+      while (journal.append(new ZmqFrames(frame))) {
+        appended++;
+      }
+      // two segments of 4 records each, the rest is refused rather than rolled.
+      assertEquals(8, appended);
+      assertEquals(2 * MappedJournal.MIN_SEGMENT_SIZE, journal.mappedBytes());
+      assertEquals(2, dir.list().length);
+
+      // head segment is drained => unmapped and deleted, room for new one.
+      for (int i = 0; i < 4; i++) {
+        journal.remove();
+      }
+      assertEquals(1, dir.list().length);
+      assertEquals(MappedJournal.MIN_SEGMENT_SIZE, journal.mappedBytes());
+      assertTrue(journal.append(new ZmqFrames(frame)));
+    }
+    finally {
+      journal.destroy();
+    }
+    assertFalse(dir.exists());
+  }
+
+  @Test
+  public void t3() throws Exception {
+    File dir = Files.createTempDirectory("journal-test").toFile();
+    MappedJournal journal = new MappedJournal(dir, MappedJournal.MIN_SEGMENT_SIZE);
+    try {
+      journal.append(new ZmqFrames("first".getBytes()));
+      assertEquals("first", new String(journal.peek().get(0)));
+      journal.remove(); // the only segment is drained and rewound.
+
+      byte[] large = new byte[5000];
+      journal.append(new ZmqFrames(large)); // doesn't fit drained segment => it's replaced.
+      assertEquals(1, journal.depth());
+      assertEquals(1, dir.list().length);
+      assertEquals(large.length, journal.peek().get(0).length);
+      journal.remove();
+      assertNull(journal.peek());
+    }
+    finally {
+      journal.destroy();
+    }
+    assertFalse(dir.exists());
+  }
+}
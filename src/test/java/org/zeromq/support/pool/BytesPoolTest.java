@@ -0,0 +1,41 @@
+package org.zeromq.support.pool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class BytesPoolTest {
+
+  @Test
+  public void t0() {
+    BytesPool pool = new BytesPool(1000);
+
+    assertEquals(1024, pool.maxBufSize());
+    assertEquals(BytesPool.MIN_BUF_SIZE, pool.borrow(0).length);
+    assertEquals(BytesPool.MIN_BUF_SIZE, pool.borrow(64).length);
+    assertEquals(128, pool.borrow(65).length);
+    assertEquals(1024, pool.borrow(1024).length);
+    assertEquals(1025, pool.borrow(1025).length); // not pooled, exact length.
+  }
+
+  @Test
+  public void t1() {
+    BytesPool pool = new BytesPool(1024, 1);
+
+    byte[] buf = pool.borrow(100);
+    pool.release(buf);
+    assertSame(buf, pool.borrow(128)); // same size class => same buffer.
+
+    byte[] other = pool.borrow(100);
+    assertNotSame(buf, other);
+
+    pool.release(buf);
+    pool.release(other); // class is full, silently dropped.
+    assertSame(buf, pool.borrow(100));
+
+    pool.release(new byte[100]); // doesn't fit any size class, silently dropped.
+    assertEquals(128, pool.borrow(100).length);
+  }
+}
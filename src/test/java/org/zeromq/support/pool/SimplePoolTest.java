@@ -61,7 +61,7 @@ public class SimplePoolTest {
 
     Lease<String> x = pool.lease();
     assertThat(pool.available(), is(0));
-    assertSame(s, x);
+    assertSame(s.get(), x.get());
 
     x.release();
     assertThat(pool.available(), is(1));
@@ -83,7 +83,7 @@ public class SimplePoolTest {
     s.release();
 
     assertThat(pool.available(), is(1));
-    assertSame(s, pool.lease());
+    assertSame(s.get(), pool.lease().get());
   }
 
   @Test
@@ -146,6 +146,76 @@ public class SimplePoolTest {
     assert pool.available() <= 8;
   }
 
+  @Test
+  public void t5() {
+    final int[] resets = new int[1];
+    SimplePool<String> pool = new SimplePool<String>(1, new PoolObjectRecycler<String>() {
+
+      private int c = 0;
+
+      @Override
+      public boolean validate(String string) {
+        return string.str != null;
+      }
+
+      @Override
+      public void reset(String string) {
+        resets[0]++;
+      }
+
+      @Override
+      public String build() {
+        return new String("cool" + (++c));
+      }
+
+      @Override
+      public void destroy(String string) {
+        string.destroy();
+      }
+    });
+
+    Lease<String> s = pool.lease();
+    s.release();
+    s.release(); // second release is no-op.
+    assertEquals(1, resets[0]);
+
+    Lease<String> x = pool.lease();
+    assertEquals("cool1", x.get().str); // valid => reused.
+    x.get().destroy();
+    x.release();
+
+    Lease<String> y = pool.lease();
+    assertEquals("cool2", y.get().str); // invalid => rebuilt.
+    y.release();
+
+    pool.destroy();
+    assert y.get().str == null;
+  }
+
+  @Test
+  public void t6() {
+    // destroying pool which has never-leased slots must not fail.
+    new SimplePool<String>(4, testStrBuilder).destroy();
+  }
+
+  @Test
+  public void t7() {
+    SimplePool<String> pool = new SimplePool<String>(1, testStrBuilder);
+
+    Lease<String> s = pool.lease();
+    s.release();
+    Lease<String> x = pool.lease();
+    assertSame(s.get(), x.get());
+
+    // stale lease doesn't release object of the next lessee.
+    s.release();
+    assertThat(pool.available(), is(0));
+    assert pool.lease() == null;
+
+    x.release();
+    assertThat(pool.available(), is(1));
+  }
+
   private Thread leaseReleaseFast(final CountDownLatch l,
                                   final int iterNum,
                                   final SimplePool<String> pool,
@@ -0,0 +1,88 @@
+package org.zeromq.support.ring;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MpscRingTest {
+
+  @Test
+  public void t0() {
+    MpscRing<Integer> ring = new MpscRing<Integer>(3);
+    assertEquals(4, ring.capacity());
+    assertTrue(ring.isEmpty());
+    assertNull(ring.poll());
+
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer(i));
+    }
+    assertFalse(ring.offer(4)); // full.
+    assertEquals(4, ring.size());
+
+    // wrap around several times.
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, (int) ring.poll());
+      assertTrue(ring.offer(i + 4));
+    }
+  }
+
+  @Test
+  public void t1() throws Exception {
+    final MpscRing<long[]> ring = new MpscRing<long[]>(64);
+    final int producerNum = 4;
+    final int messageNum = 100000;
+    final CountDownLatch latch = new CountDownLatch(producerNum);
+    for (int p = 0; p < producerNum; p++) {
+      final int producer = p;
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (long i = 0; i < messageNum; i++) {
+            long[] message = new long[]{producer, i};
+            while (!ring.offer(message)) {
+              Thread.yield();
+            }
+          }
+          latch.countDown();
+        }
+      }).start();
+    }
+
+    // every producer's messages must come in order.
+    long[] expected = new long[producerNum];
+    for (int received = 0; received < producerNum * messageNum; ) {
+      long[] message = ring.poll();
+      if (message == null) {
+        Thread.yield();
+        continue;
+      }
+      assertEquals(expected[(int) message[0]]++, message[1]);
+      received++;
+    }
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertTrue(ring.isEmpty());
+  }
+
+  @Test
+  public void t2() {
+    MpscRing<Integer> ring = new MpscRing<Integer>(2);
+    long pos = ring.claim();
+    assertTrue(pos >= 0);
+    assertTrue(ring.offer(1));
+    assertEquals(-1, ring.claim()); // claimed slot counts as taken.
+    assertFalse(ring.offer(2));
+
+    // consumer doesn't get past claimed slot until it's published.
+    assertNull(ring.poll());
+    ring.publish(pos, 0);
+    assertEquals(0, (int) ring.poll());
+    assertEquals(1, (int) ring.poll());
+    assertTrue(ring.isEmpty());
+  }
+}
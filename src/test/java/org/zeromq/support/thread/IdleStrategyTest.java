@@ -0,0 +1,49 @@
+package org.zeromq.support.thread;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class IdleStrategyTest {
+
+  @Test
+  public void t0() {
+    assertEquals(1000, IdleStrategy.blocking().pollTimeout(1000));
+    assertEquals(0, IdleStrategy.busySpin().pollTimeout(1000));
+    assertEquals(0, IdleStrategy.spinYield(10).pollTimeout(1000));
+    assertEquals(0, IdleStrategy.spinPark(10, 10, 100).pollTimeout(1000));
+  }
+
+  @Test
+  public void t1() {
+    IdleStrategy strategy = IdleStrategy.spinPark(0, 0, 100);
+    long t = System.nanoTime();
+    for (int i = 0; i < 100; i++) {
+      strategy.idle(0); // parks.
+    }
+    long elapsed = System.nanoTime() - t;
+    assert elapsed >= TimeUnit.MICROSECONDS.toNanos(100) : elapsed;
+
+    strategy.idle(1); // traffic => backoff reset.
+  }
+
+  @Test
+  public void t2() throws Exception {
+    IdleStrategy strategy = IdleStrategy.adaptive(TimeUnit.SECONDS.toMicros(10));
+    // no traffic seen => block.
+    assertEquals(1000, strategy.pollTimeout(1000));
+
+    // steady traffic => spin.
+    for (int i = 0; i < 10; i++) {
+      TimeUnit.MILLISECONDS.sleep(1);
+      strategy.idle(1);
+    }
+    assertEquals(0, strategy.pollTimeout(1000));
+
+    // traffic has gone (quiet for longer than 2x avg gap) => block again.
+    TimeUnit.MILLISECONDS.sleep(50);
+    assertEquals(1000, strategy.pollTimeout(1000));
+  }
+}
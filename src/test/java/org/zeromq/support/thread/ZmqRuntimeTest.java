@@ -0,0 +1,119 @@
+package org.zeromq.support.thread;
+
+import org.junit.Test;
+import org.zeromq.support.HasDrain;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ZmqRuntimeTest {
+
+  /** Actor which has {@code pending} things to flush, one per drain step. */
+  static class DrainableActor implements ZmqActor, HasDrain {
+
+    final AtomicInteger pending;
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicBoolean execAfterDrain = new AtomicBoolean();
+    final AtomicBoolean destroyed = new AtomicBoolean();
+    volatile boolean draining;
+    volatile String threadName;
+
+    DrainableActor(int pending) {
+      this.pending = new AtomicInteger(pending);
+    }
+
+    @Override
+    public void init() {
+      threadName = Thread.currentThread().getName();
+    }
+
+    @Override
+    public void exec() throws Exception {
+      if (draining) {
+        execAfterDrain.set(true);
+      }
+      started.countDown();
+      TimeUnit.MILLISECONDS.sleep(1);
+    }
+
+    @Override
+    public boolean drain(long deadline) {
+      draining = true;
+      return pending.get() == 0 || pending.decrementAndGet() == 0;
+    }
+
+    @Override
+    public void destroy() {
+      destroyed.set(true);
+    }
+  }
+
+  @Test
+  public void t0() throws Exception {
+    DrainableActor a0 = new DrainableActor(10);
+    DrainableActor a1 = new DrainableActor(0);
+    ZmqRuntime runtime = ZmqRuntime.builder()
+                                   .withThreadNum(2)
+                                   .withThreadNameFormat("test-runtime-%d")
+                                   .withDrainTimeout(1000)
+                                   .with(ZmqProcess.builder().with(a0).build())
+                                   .with(ZmqProcess.builder().with(a1).build())
+                                   .build();
+    runtime.init();
+    assertTrue(a0.started.await(1, TimeUnit.SECONDS));
+    assertTrue(a1.started.await(1, TimeUnit.SECONDS));
+    assertTrue(a0.threadName.startsWith("test-runtime-"));
+
+    runtime.destroy();
+
+    // both drained completely, then destroyed.
+    assertEquals(0, a0.pending.get());
+    assertEquals(0, a1.pending.get());
+    assertTrue(a0.destroyed.get());
+    assertTrue(a1.destroyed.get());
+    assertFalse(a0.execAfterDrain.get());
+  }
+
+  @Test
+  public void t1() throws Exception {
+    // actor never gets drained => it's destroyed at drain deadline anyway.
+    DrainableActor a = new DrainableActor(Integer.MAX_VALUE);
+    ZmqRuntime runtime = ZmqRuntime.builder()
+                                   .withThreadNum(1)
+                                   .withDrainTimeout(100)
+                                   .with(ZmqProcess.builder().with(a).build())
+                                   .build();
+    runtime.init();
+    assertTrue(a.started.await(1, TimeUnit.SECONDS));
+
+    long start = System.currentTimeMillis();
+    runtime.destroy();
+    long elapsed = System.currentTimeMillis() - start;
+
+    assertTrue(a.destroyed.get());
+    assertTrue(a.pending.get() > 0);
+    assertTrue("elapsed=" + elapsed, elapsed >= 100 && elapsed < 1000);
+
+    // destroy is idempotent: processes aren't drained and waited for again.
+    start = System.currentTimeMillis();
+    runtime.destroy();
+    elapsed = System.currentTimeMillis() - start;
+    assertTrue("elapsed=" + elapsed, elapsed < 100);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void t2() {
+    // threads are bounded: more processes than threads isn't allowed.
+    ZmqRuntime.builder()
+              .withThreadNum(1)
+              .with(ZmqProcess.builder().with(new DrainableActor(0)).build())
+              .with(ZmqProcess.builder().with(new DrainableActor(0)).build())
+              .build();
+  }
+}
@@ -0,0 +1,95 @@
+package org.zeromq.support.timer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HashedWheelTimerTest {
+
+  static class Named extends HashedWheelTimer.Node {
+
+    final String name;
+
+    Named(String name) {
+      this.name = name;
+    }
+  }
+
+  @Test
+  public void t0() {
+    HashedWheelTimer wheel = new HashedWheelTimer(0, 10, 8); // round is 80 millis.
+    Named a = new Named("a");
+    Named b = new Named("b");
+    Named c = new Named("c");
+    wheel.schedule(a, 15);
+    wheel.schedule(b, 25);
+    wheel.schedule(c, 15 + 80 * 2); // same bucket as "a", but two rounds later.
+    assertEquals(3, wheel.size());
+
+    // "a" is due at tick 2 (deadline is rounded up).
+    assertEquals(20, wheel.timeout(0, 1000));
+    assertNull(wheel.poll(15));
+    assertSame(a, wheel.poll(20));
+    assertNull(wheel.poll(20));
+
+    assertEquals(10, wheel.timeout(20, 1000));
+    assertSame(b, wheel.poll(30));
+    assertNull(wheel.poll(100));
+    assertEquals(1, wheel.size());
+
+    // "c" is further than one round away => wake up at the end of the round at least.
+    assertTrue(wheel.timeout(100, 1000) <= 80);
+    assertNull(wheel.poll(170));
+    assertSame(c, wheel.poll(180));
+    assertEquals(0, wheel.size());
+    assertEquals(1000, wheel.timeout(180, 1000));
+  }
+
+  @Test
+  public void t1() {
+    HashedWheelTimer wheel = new HashedWheelTimer(0, 1, 16);
+    Named a = new Named("a");
+    Named b = new Named("b");
+    wheel.schedule(a, 5);
+    wheel.schedule(b, 5);
+
+    assertTrue(wheel.cancel(a));
+    assertFalse(wheel.cancel(a));
+    assertFalse(a.isScheduled());
+    assertTrue(b.isScheduled());
+
+    // re-schedule moves node.
+    wheel.schedule(b, 7);
+    assertNull(wheel.poll(6));
+    assertSame(b, wheel.poll(7));
+
+    // deadline in the past => expires at the next poll.
+    wheel.schedule(a, 1);
+    assertEquals(0, wheel.timeout(10, 1000));
+    assertSame(a, wheel.poll(10));
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void t2() {
+    // many nodes over many rounds expire in deadline order (within tick).
+    HashedWheelTimer wheel = new HashedWheelTimer(0, 1, 64);
+    int n = 1000;
+    for (int i = n - 1; i >= 0; i--) {
+      wheel.schedule(new Named("" + i), i * 3);
+    }
+    int expired = 0;
+    for (long now = 0; now <= n * 3; now++) {
+      HashedWheelTimer.Node node;
+      while ((node = wheel.poll(now)) != null) {
+        assertEquals(expired++, Integer.parseInt(((Named) node).name));
+        assertEquals(expired * 3 - 3, now);
+      }
+    }
+    assertEquals(n, expired);
+  }
+}